@@ -0,0 +1,40 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The parameters and settings shared by every graph benchmark. Each benchmark reports its
+ * throughput and a sample of its latencies, and its allocation rate when run with {@code -prof gc}.
+ * Any parameter can be overridden from the command line, such as {@code -p vertexCount=1000000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class GraphBenchmarkParameters {
+  /** The seed of every random graph, so every run benchmarks the same graphs. */
+  protected static final long SEED = 281;
+
+  /** The number of verticies in the graph. */
+  @Param({"1000", "100000"})
+  public int vertexCount;
+
+  /** The average out degree of each vertex, the density of the graph. */
+  @Param({"2", "16"})
+  public int degree;
+
+  /** The shape of the graph. */
+  @Param({"RANDOM", "CHAIN", "LAYERED", "EQUIVALENCE"})
+  public GraphShape shape;
+}
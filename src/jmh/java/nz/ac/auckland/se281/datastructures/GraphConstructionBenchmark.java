@@ -0,0 +1,65 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks building a graph, from the sets of verticies and edges that the file parsers produce
+ * and from a stream of edges through a {@link GraphBuilder}.
+ */
+public class GraphConstructionBenchmark extends GraphBenchmarkParameters {
+  private String[] names;
+  private int[] sources;
+  private int[] destinations;
+  private Set<String> verticies;
+  private Set<Edge<String>> edges;
+
+  /** Generates the verticies and edges of the graph. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    int[][] endpoints = shape.generateEdges(vertexCount, degree, SEED);
+    sources = endpoints[0];
+    destinations = endpoints[1];
+
+    names = new String[vertexCount];
+    verticies = new HashSet<>();
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      names[vertex] = String.valueOf(vertex);
+      verticies.add(names[vertex]);
+    }
+    edges = new HashSet<>();
+    for (int i = 0; i < sources.length; i++) {
+      edges.add(new Edge<>(names[sources[i]], names[destinations[i]]));
+    }
+  }
+
+  /**
+   * Builds the graph from sets of verticies and edges.
+   *
+   * @return the graph.
+   */
+  @Benchmark
+  public Graph<String> fromSets() {
+    return new Graph<>(verticies, edges);
+  }
+
+  /**
+   * Builds the graph one vertex and edge at a time.
+   *
+   * @return the graph.
+   */
+  @Benchmark
+  public Graph<String> fromBuilder() {
+    GraphBuilder<String> builder = new GraphBuilder<>();
+    for (String name : names) {
+      builder.addVertex(name);
+    }
+    for (int i = 0; i < sources.length; i++) {
+      builder.addEdge(names[sources[i]], names[destinations[i]]);
+    }
+    return builder.build();
+  }
+}
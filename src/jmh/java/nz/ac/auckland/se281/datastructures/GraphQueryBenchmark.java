@@ -0,0 +1,143 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.List;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks every query of a graph. A graph remembers the answers to its queries, so each
+ * benchmark asks a fresh graph that shares the verticies and adjacency of the generated one, which
+ * costs only a few small allocations.
+ */
+public class GraphQueryBenchmark extends GraphBenchmarkParameters {
+  private Graph<String> graph;
+  private String vertex;
+
+  /** Generates the graph. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    graph = shape.build(vertexCount, degree, SEED);
+    vertex = String.valueOf(vertexCount / 2);
+  }
+
+  /**
+   * Creates a graph with the same verticies and edges that has not answered any queries.
+   *
+   * @return the graph.
+   */
+  private Graph<String> fresh() {
+    return new Graph<>(graph.getDictionary(), graph.getAdjacency());
+  }
+
+  /**
+   * Finds the roots of the graph.
+   *
+   * @return the roots.
+   */
+  @Benchmark
+  public Set<String> getRoots() {
+    return fresh().getRoots();
+  }
+
+  /**
+   * Checks if the graph is reflexive.
+   *
+   * @return true or false.
+   */
+  @Benchmark
+  public boolean isReflexive() {
+    return fresh().isReflexive();
+  }
+
+  /**
+   * Checks if the graph is symmetric.
+   *
+   * @return true or false.
+   */
+  @Benchmark
+  public boolean isSymmetric() {
+    return fresh().isSymmetric();
+  }
+
+  /**
+   * Checks if the graph is transitive.
+   *
+   * @return true or false.
+   */
+  @Benchmark
+  public boolean isTransitive() {
+    return fresh().isTransitive();
+  }
+
+  /**
+   * Checks if the graph is anti-symmetric.
+   *
+   * @return true or false.
+   */
+  @Benchmark
+  public boolean isAntiSymmetric() {
+    return fresh().isAntiSymmetric();
+  }
+
+  /**
+   * Checks if the graph is an equivalence relation.
+   *
+   * @return true or false.
+   */
+  @Benchmark
+  public boolean isEquivalence() {
+    return fresh().isEquivalence();
+  }
+
+  /**
+   * Finds the equivalence class of a vertex in the middle of the graph.
+   *
+   * @return the equivalence class.
+   */
+  @Benchmark
+  public Set<String> getEquivalenceClass() {
+    return fresh().getEquivalenceClass(vertex);
+  }
+
+  /**
+   * Searches the graph breadth first, iteratively.
+   *
+   * @return the search order.
+   */
+  @Benchmark
+  public List<String> iterativeBreadthFirstSearch() {
+    return fresh().iterativeBreadthFirstSearch();
+  }
+
+  /**
+   * Searches the graph depth first, iteratively.
+   *
+   * @return the search order.
+   */
+  @Benchmark
+  public List<String> iterativeDepthFirstSearch() {
+    return fresh().iterativeDepthFirstSearch();
+  }
+
+  /**
+   * Searches the graph breadth first, recursively.
+   *
+   * @return the search order.
+   */
+  @Benchmark
+  public List<String> recursiveBreadthFirstSearch() {
+    return fresh().recursiveBreadthFirstSearch();
+  }
+
+  /**
+   * Searches the graph depth first, recursively.
+   *
+   * @return the search order.
+   */
+  @Benchmark
+  public List<String> recursiveDepthFirstSearch() {
+    return fresh().recursiveDepthFirstSearch();
+  }
+}
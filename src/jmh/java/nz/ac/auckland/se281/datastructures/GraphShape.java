@@ -0,0 +1,108 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Random;
+
+/**
+ * The shapes of the graphs that the benchmarks run on. Each shape builds the same graph for the
+ * same vertex count, average out degree and seed.
+ */
+public enum GraphShape {
+  /** Edges between verticies chosen uniformly at random. */
+  RANDOM {
+    @Override
+    void generate(int vertexCount, int degree, Random random, int[] sources, int[] destinations) {
+      for (int i = 0; i < sources.length; i++) {
+        sources[i] = random.nextInt(vertexCount);
+        destinations[i] = random.nextInt(vertexCount);
+      }
+    }
+  },
+
+  /** A long path, where each vertex has edges to the next few verticies, so searches go deep. */
+  CHAIN {
+    @Override
+    void generate(int vertexCount, int degree, Random random, int[] sources, int[] destinations) {
+      for (int i = 0; i < sources.length; i++) {
+        int source = i / degree;
+        sources[i] = source;
+        destinations[i] = Math.min(vertexCount - 1, source + 1 + i % degree);
+      }
+    }
+  },
+
+  /** Layers of about the square root of the vertex count wide, with edges into the next layer. */
+  LAYERED {
+    @Override
+    void generate(int vertexCount, int degree, Random random, int[] sources, int[] destinations) {
+      int width = Math.max(1, (int) Math.sqrt(vertexCount));
+      for (int i = 0; i < sources.length; i++) {
+        int source = random.nextInt(vertexCount);
+        int nextLayer = Math.min(vertexCount - 1, (source / width + 1) * width);
+        sources[i] = source;
+        destinations[i] = Math.min(vertexCount - 1, nextLayer + random.nextInt(width));
+      }
+    }
+  },
+
+  /** Disjoint classes of degree verticies with every edge inside each class, an equivalence. */
+  EQUIVALENCE {
+    @Override
+    void generate(int vertexCount, int degree, Random random, int[] sources, int[] destinations) {
+      for (int i = 0; i < sources.length; i++) {
+        int source = i / degree;
+        int classStart = source - source % degree;
+        int classSize = Math.min(degree, vertexCount - classStart); // the last class may be short
+        sources[i] = source;
+        destinations[i] = classStart + i % degree % classSize;
+      }
+    }
+  };
+
+  /**
+   * Fills in the endpoints of every edge of a graph of this shape.
+   *
+   * @param vertexCount the number of verticies.
+   * @param degree the average out degree.
+   * @param random the source of any random choices.
+   * @param sources the source of each edge, to fill in.
+   * @param destinations the destination of each edge, to fill in.
+   */
+  abstract void generate(
+      int vertexCount, int degree, Random random, int[] sources, int[] destinations);
+
+  /**
+   * Builds a graph of this shape, with the same edges for the same arguments.
+   *
+   * @param vertexCount the number of verticies.
+   * @param degree the average out degree.
+   * @param seed the seed of the random choices.
+   * @return the graph, whose verticies are the numbers 0 up to the vertex count.
+   */
+  public Graph<String> build(int vertexCount, int degree, long seed) {
+    int[][] edges = generateEdges(vertexCount, degree, seed);
+    GraphBuilder<String> builder = new GraphBuilder<>();
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      builder.addVertex(String.valueOf(vertex));
+    }
+    for (int i = 0; i < edges[0].length; i++) {
+      builder.addEdge(String.valueOf(edges[0][i]), String.valueOf(edges[1][i]));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Generates the endpoints of every edge of a graph of this shape.
+   *
+   * @param vertexCount the number of verticies.
+   * @param degree the average out degree.
+   * @param seed the seed of the random choices.
+   * @return the sources and then the destinations of the edges.
+   */
+  public int[][] generateEdges(int vertexCount, int degree, long seed) {
+    int edgeCount = vertexCount * degree;
+    int[] sources = new int[edgeCount];
+    int[] destinations = new int[edgeCount];
+    generate(vertexCount, degree, new Random(seed), sources, destinations);
+    return new int[][] {sources, destinations};
+  }
+}
@@ -8,9 +8,17 @@ package nz.ac.auckland.se281;
 public enum Command {
   OPEN_FILE(1, "Open the file <FILENAME>"),
   INFO(0, "Print information about the current loaded file"),
+  SAVE_SNAPSHOT(1, "Save the current loaded graph as a binary snapshot file <FILENAME>"),
+  SAVE_CLOSURE(
+      1, "Save the transitive closure of the current loaded graph as a snapshot file <FILENAME>"),
 
   LIST_VERTICIES_EDGES(0, "List the set of vertices and edges"),
   LIST_ROOT_VERTICIES(0, "List the set of root vertices"),
+  LIST_COMPONENTS(0, "List the strongly connected components in topological order"),
+
+  ADD_VERTEX(1, "Add the vertex <VERTEX> to the current loaded graph"),
+  ADD_EDGE(2, "Add the edge <SOURCE> -> <DESTINATION> to the current loaded graph"),
+  REMOVE_EDGE(2, "Remove the edge <SOURCE> -> <DESTINATION> from the current loaded graph"),
 
   CHECK_REFLEXIVITY(0, "Check reflexivity of the graph"),
   CHECK_SYMMETRY(0, "Check symmetry of the graph"),
@@ -18,6 +26,7 @@ public enum Command {
   CHECK_ANTISYMMETRY(0, "Check anti-symmetry of the graph"),
   CHECK_EQUIVALENCE(0, "Check equivalence of the graph"),
   COMPUTE_EQUIVALENCE(1, "Compute equivalence class for a vertex in loaded file <VERTEX>"),
+  CHECK_REACHABILITY(2, "Check if <DESTINATION> can be reached from <SOURCE> by following edges"),
 
   GRAPH_SEARCH_IBFS(
       0, "Perform a breadth-first search on the current loaded file, and display the BFS order"),
@@ -33,6 +42,16 @@ public enum Command {
       "Perform a recursive depth-first search on the current loaded file, and display the DFS"
           + " order"),
 
+  GRAPH_SEARCH_PBFS(
+      0,
+      "Perform a parallel breadth-first search on the current loaded file, and display the BFS"
+          + " order"),
+
+  GRAPH_SEARCH_LEVELS(
+      0,
+      "Perform a direction-optimizing breadth-first search from every root, and display each level"
+          + " with its timing"),
+
   HELP(0, "Print usage"),
   EXIT(0, "Exit the application");
 
@@ -0,0 +1,344 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+import nz.ac.auckland.se281.datastructures.MappedFile;
+import nz.ac.auckland.se281.datastructures.NumericEdgeBuffer;
+
+/**
+ * A loader for plain edge list files (SNAP style), where every line holds a source and a
+ * destination separated by spaces or tabs, and lines starting with {@code #} or {@code %} are
+ * comments.
+ *
+ * <p>The file is read through a memory mapping and split into byte ranges that end on line
+ * boundaries, which are parsed in parallel into a {@link NumericEdgeBuffer} each. When an id is not
+ * a plain whole number (such as {@code a} or {@code 007}) the file is parsed again on a single
+ * thread into a {@link GraphBuilder}, so every id keeps its exact text.
+ */
+public final class EdgeListLoader {
+  /** The smallest byte range worth parsing on its own thread. */
+  public static final long DEFAULT_CHUNK_SIZE = 1 << 20;
+
+  private static final int MAX_NUMERIC_DIGITS = 18;
+
+  private final MappedFile file;
+
+  /**
+   * Creates a loader of a mapped file.
+   *
+   * @param file the mapped edge list file.
+   */
+  private EdgeListLoader(final MappedFile file) {
+    this.file = file;
+  }
+
+  /**
+   * Loads an edge list file using the common fork join pool.
+   *
+   * @param file the edge list file.
+   * @return the graph, or null if the file is not an edge list.
+   * @throws IOException If the file cannot be read.
+   */
+  public static Graph<String> load(final Path file) throws IOException {
+    return load(file, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Loads an edge list file.
+   *
+   * @param file the edge list file.
+   * @param pool the pool that parses the byte ranges of the file.
+   * @param chunkSize the smallest number of bytes in each range.
+   * @return the graph, or null if the file is not an edge list.
+   * @throws IOException If the file cannot be read.
+   */
+  public static Graph<String> load(final Path file, final ForkJoinPool pool, final long chunkSize)
+      throws IOException {
+    final EdgeListLoader loader = new EdgeListLoader(MappedFile.map(file));
+    if (loader.startsLikeDot()) {
+      return null;
+    }
+    return loader.loadNumeric(pool, chunkSize);
+  }
+
+  /**
+   * Checks if the first id in the file is a DOT graph keyword, so DOT files are turned away without
+   * being scanned.
+   *
+   * @return true if the file starts like a DOT file, false otherwise.
+   */
+  private boolean startsLikeDot() {
+    long position = skipComments(0, file.size());
+    position = skipBlanks(position, file.size());
+    final long end = skipToken(position, file.size());
+
+    final byte[] bytes = new byte[(int) Math.min(end - position, 8)];
+    file.get(position, bytes, bytes.length);
+    final String first = new String(bytes, StandardCharsets.UTF_8);
+
+    return first.equalsIgnoreCase("digraph")
+        || first.equalsIgnoreCase("graph")
+        || first.equalsIgnoreCase("strict");
+  }
+
+  /**
+   * Parses the byte ranges of the file in parallel, expecting every id to be a whole number.
+   *
+   * @param pool the pool to parse in.
+   * @param chunkSize the smallest number of bytes in each range.
+   * @return the graph, or null if the file is not an edge list.
+   */
+  private Graph<String> loadNumeric(final ForkJoinPool pool, final long chunkSize) {
+    final long size = file.size();
+    final long chunkCount = Math.max(1, Math.min(pool.getParallelism() * 4L, size / chunkSize));
+
+    // move every boundary forward to the start of a line, so no line is split between ranges
+    final List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    for (long i = 1; i < chunkCount; i++) {
+      final long boundary = nextLine(size / chunkCount * i);
+      if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+        boundaries.add(boundary);
+      }
+    }
+    boundaries.add(size);
+
+    // a range that finds a non-numeric id stops the others, then the file is parsed again as text
+    final AtomicBoolean isNumeric = new AtomicBoolean(true);
+    final AtomicBoolean isEdgeList = new AtomicBoolean(true);
+    final List<Callable<NumericEdgeBuffer>> tasks = new ArrayList<>();
+    for (int i = 0; i + 1 < boundaries.size(); i++) {
+      final long start = boundaries.get(i);
+      final long end = boundaries.get(i + 1);
+      tasks.add(() -> parseNumeric(start, end, isNumeric, isEdgeList));
+    }
+
+    final List<NumericEdgeBuffer> buffers = new ArrayList<>();
+    for (final Future<NumericEdgeBuffer> future : pool.invokeAll(tasks)) {
+      try {
+        buffers.add(future.get());
+      } catch (final InterruptedException | ExecutionException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    if (!isEdgeList.get()) {
+      return null;
+    }
+    return isNumeric.get() ? NumericEdgeBuffer.toGraph(buffers) : loadText();
+  }
+
+  /**
+   * Parses the lines in a byte range into a buffer of numeric edges.
+   *
+   * @param start the position of the first byte of the range, at the start of a line.
+   * @param end the position one past the last byte of the range.
+   * @param isNumeric cleared if an id is not a whole number.
+   * @param isEdgeList cleared if a line is not an edge.
+   * @return the edges in the range, which are incomplete if either flag has been cleared.
+   */
+  private NumericEdgeBuffer parseNumeric(
+      final long start,
+      final long end,
+      final AtomicBoolean isNumeric,
+      final AtomicBoolean isEdgeList) {
+    final NumericEdgeBuffer buffer = new NumericEdgeBuffer();
+    long position = start;
+
+    while (position < end && isNumeric.get() && isEdgeList.get()) {
+      position = skipComments(position, end);
+      position = skipBlanks(position, end);
+      if (position == end) {
+        break;
+      }
+
+      final long sourceEnd = skipToken(position, end);
+      final long destinationStart = skipBlanks(sourceEnd, end);
+      final long destinationEnd = skipToken(destinationStart, end);
+      final long lineEnd = skipBlanks(destinationEnd, end);
+
+      if (destinationStart == destinationEnd || !isLineEnd(lineEnd, end)) {
+        isEdgeList.set(false); // a line that is not exactly two ids
+        break;
+      }
+
+      final long source = parseWholeNumber(position, sourceEnd);
+      final long destination = parseWholeNumber(destinationStart, destinationEnd);
+      if (source == Long.MIN_VALUE || destination == Long.MIN_VALUE) {
+        isNumeric.set(false);
+        break;
+      }
+
+      buffer.add(source, destination);
+      position = nextLine(lineEnd);
+    }
+    return buffer;
+  }
+
+  /**
+   * Parses the whole file on a single thread, keeping the exact text of every id.
+   *
+   * @return the graph, or null if the file is not an edge list.
+   */
+  private Graph<String> loadText() {
+    final GraphBuilder<String> builder = new GraphBuilder<>();
+    final long size = file.size();
+    long position = 0;
+
+    while (position < size) {
+      position = skipComments(position, size);
+      position = skipBlanks(position, size);
+      if (position == size) {
+        break;
+      }
+
+      final long sourceEnd = skipToken(position, size);
+      final long destinationStart = skipBlanks(sourceEnd, size);
+      final long destinationEnd = skipToken(destinationStart, size);
+      final long lineEnd = skipBlanks(destinationEnd, size);
+
+      if (destinationStart == destinationEnd || !isLineEnd(lineEnd, size)) {
+        return null;
+      }
+
+      builder.addEdge(readText(position, sourceEnd), readText(destinationStart, destinationEnd));
+      position = nextLine(lineEnd);
+    }
+    return builder.build();
+  }
+
+  /**
+   * Parses a plain whole number, without a plus sign or leading zeros, so that its decimal string
+   * is exactly the text in the file.
+   *
+   * @param start the position of the first byte of the id.
+   * @param end the position one past the last byte of the id.
+   * @return the number, or {@link Long#MIN_VALUE} if the id is not a plain whole number.
+   */
+  private long parseWholeNumber(final long start, final long end) {
+    final boolean isNegative = file.get(start) == '-';
+    final long digitStart = isNegative ? start + 1 : start;
+    final long digitCount = end - digitStart;
+
+    if (digitCount == 0
+        || digitCount > MAX_NUMERIC_DIGITS
+        || (digitCount > 1 && file.get(digitStart) == '0')
+        || (isNegative && digitCount == 1 && file.get(digitStart) == '0')) {
+      return Long.MIN_VALUE; // such as "", "007" or "-0", which are not plain numbers
+    }
+
+    long value = 0;
+    for (long position = digitStart; position < end; position++) {
+      final byte digit = file.get(position);
+      if (digit < '0' || digit > '9') {
+        return Long.MIN_VALUE;
+      }
+      value = value * 10 + (digit - '0');
+    }
+    return isNegative ? -value : value;
+  }
+
+  /**
+   * Reads the text of an id.
+   *
+   * @param start the position of the first byte of the id.
+   * @param end the position one past the last byte of the id.
+   * @return the id.
+   */
+  private String readText(final long start, final long end) {
+    final byte[] bytes = new byte[(int) (end - start)];
+    file.get(start, bytes, bytes.length);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Skips any comment lines and blank lines.
+   *
+   * @param position the position to start from, at the start of a line.
+   * @param end the position to stop at.
+   * @return the position of the start of the first line that is not a comment or blank.
+   */
+  private long skipComments(long position, final long end) {
+    while (position < end) {
+      final long lineStart = skipBlanks(position, end);
+      if (lineStart < end && (file.get(lineStart) == '#' || file.get(lineStart) == '%')) {
+        position = nextLine(lineStart);
+      } else if (lineStart < end && file.get(lineStart) == '\n') {
+        position = lineStart + 1;
+      } else {
+        return position;
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Skips spaces, tabs and carriage returns.
+   *
+   * @param position the position to start from.
+   * @param end the position to stop at.
+   * @return the position of the first byte that is not blank.
+   */
+  private long skipBlanks(long position, final long end) {
+    while (position < end) {
+      final byte current = file.get(position);
+      if (current != ' ' && current != '\t' && current != '\r') {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Skips the bytes of an id.
+   *
+   * @param position the position of the first byte of the id.
+   * @param end the position to stop at.
+   * @return the position one past the last byte of the id.
+   */
+  private long skipToken(long position, final long end) {
+    while (position < end) {
+      final byte current = file.get(position);
+      if (current == ' ' || current == '\t' || current == '\r' || current == '\n') {
+        break;
+      }
+      position++;
+    }
+    return position;
+  }
+
+  /**
+   * Checks if a position is the end of a line, or the end of the range.
+   *
+   * @param position the position to check.
+   * @param end the end of the range.
+   * @return true if the line ends here, false otherwise.
+   */
+  private boolean isLineEnd(final long position, final long end) {
+    return position == end || file.get(position) == '\n';
+  }
+
+  /**
+   * Finds the start of the line after a position.
+   *
+   * @param position the position to start from.
+   * @return the position after the next line feed, or the size of the file if there is none.
+   */
+  private long nextLine(long position) {
+    while (position < file.size() && file.get(position) != '\n') {
+      position++;
+    }
+    return Math.min(position + 1, file.size());
+  }
+}
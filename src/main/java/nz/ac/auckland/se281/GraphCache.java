@@ -0,0 +1,310 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import nz.ac.auckland.se281.datastructures.Graph;
+
+/**
+ * A cache of loaded graphs, so opening a file again is instant. A graph is kept with every analysis
+ * it has computed, under the real path of its file along with the size and last modified time of
+ * the file, so a file that has changed is loaded again and replaces its old graph.
+ *
+ * <p>The cache holds graphs up to a memory budget, from the {@link Graph#getMemoryUsage()}
+ * estimate of each graph, and evicts the least recently used graphs to stay within it. A graph
+ * larger than the whole budget is not cached. The budget is read from the {@value #PROPERTY}
+ * system property in megabytes, such as {@code -Dse281.graph.cache.megabytes=512}, and is a quarter
+ * of the maximum heap size when the property is not set.
+ *
+ * <p>The cache may be shared between threads. Threads that miss on the same version of a file at
+ * the same time share a single load of it, so they all get the same graph.
+ */
+public final class GraphCache {
+  /** The system property that sets the default memory budget, in megabytes. */
+  public static final String PROPERTY = "se281.graph.cache.megabytes";
+
+  private static final long BYTES_PER_MEGABYTE = 1 << 20;
+
+  /** Loads a graph from a file. */
+  @FunctionalInterface
+  public interface Loader {
+    /**
+     * Loads a graph from a file.
+     *
+     * @param file the file.
+     * @return the graph.
+     * @throws IOException If the file cannot be loaded.
+     */
+    Graph<String> load(Path file) throws IOException;
+  }
+
+  private final long budget;
+  private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final HashMap<Path, Load> loads = new HashMap<>();
+  private long usage;
+  private long hitCount;
+  private long missCount;
+
+  /** Creates a cache with the budget selected by the {@value #PROPERTY} system property. */
+  public GraphCache() {
+    this(getDefaultBudget());
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param budget the most bytes that the cached graphs may take, 0 disables caching.
+   */
+  public GraphCache(final long budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Gets the budget selected by the {@value #PROPERTY} system property.
+   *
+   * @return the default budget in bytes.
+   * @throws NumberFormatException If the property is not a whole number.
+   */
+  public static long getDefaultBudget() {
+    final String megabytes = System.getProperty(PROPERTY);
+    return megabytes == null
+        ? Runtime.getRuntime().maxMemory() / 4
+        : Long.parseLong(megabytes.trim()) * BYTES_PER_MEGABYTE;
+  }
+
+  /**
+   * Gets the graph of a file from the cache, or loads and caches it if the file is not cached or
+   * has changed since it was cached.
+   *
+   * @param file the file.
+   * @param loader how to load the file when it is not cached.
+   * @return the graph.
+   * @throws IOException If the file cannot be read or loaded.
+   */
+  public Graph<String> get(final Path file, final Loader loader) throws IOException {
+    final Path path = file.toRealPath();
+    final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    final long size = attributes.size();
+    final long lastModified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+
+    final Load load;
+    final boolean isLoader;
+    synchronized (this) {
+      final Entry entry = entries.get(path);
+      if (entry != null && entry.fileSize == size && entry.lastModified == lastModified) {
+        hitCount++;
+        // queries answered since the graph was cached may have grown it
+        resize(entry);
+        evictExcept(entry);
+        return entry.graph;
+      }
+
+      final Load pending = loads.get(path);
+      if (pending != null && pending.fileSize == size && pending.lastModified == lastModified) {
+        hitCount++; // another thread is already loading this version of the file
+        load = pending;
+        isLoader = false;
+      } else {
+        missCount++;
+        load = new Load(size, lastModified);
+        loads.put(path, load);
+        isLoader = true;
+      }
+    }
+
+    if (isLoader) {
+      loadAndCache(path, file, loader, load);
+    }
+    return load.await();
+  }
+
+  /**
+   * Loads a file outside of the lock, so other files can be served in the meantime, then caches
+   * the graph and hands it to every thread waiting on the load.
+   *
+   * @param path the real path of the file.
+   * @param file the file.
+   * @param loader how to load the file.
+   * @param load the pending load of the file.
+   */
+  private void loadAndCache(
+      final Path path, final Path file, final Loader loader, final Load load) {
+    final Graph<String> graph;
+    try {
+      graph = loader.load(file);
+    } catch (final IOException | RuntimeException | Error e) {
+      synchronized (this) {
+        loads.remove(path, load);
+      }
+      load.graph.completeExceptionally(e);
+      return;
+    }
+
+    final Entry loaded = new Entry(graph, load.fileSize, load.lastModified);
+    synchronized (this) {
+      // when a newer version of the file is being loaded, this one is not worth caching
+      if (loads.remove(path, load)) {
+        final Entry previous = entries.remove(path); // an older version of the file
+        if (previous != null) {
+          usage -= previous.size;
+        }
+
+        if (loaded.size <= budget) {
+          entries.put(path, loaded);
+          usage += loaded.size;
+          evictExcept(loaded);
+        }
+      }
+    }
+    load.graph.complete(graph);
+  }
+
+  /**
+   * Updates the size of an entry from the current estimate of its graph.
+   *
+   * @param entry the entry.
+   */
+  private void resize(final Entry entry) {
+    final long size = entry.graph.getMemoryUsage();
+    usage += size - entry.size;
+    entry.size = size;
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its budget, keeping one entry
+   * that was just used.
+   *
+   * @param kept the entry to keep.
+   */
+  private void evictExcept(final Entry kept) {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (usage > budget && iterator.hasNext()) {
+      final Entry entry = iterator.next();
+      if (entry != kept) {
+        usage -= entry.size;
+        iterator.remove();
+      }
+    }
+  }
+
+  /** Removes every graph from the cache. */
+  public synchronized void clear() {
+    entries.clear();
+    usage = 0;
+  }
+
+  /**
+   * Gets the number of graphs in the cache.
+   *
+   * @return the graph count.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets the estimated number of bytes taken by the cached graphs, as of when each was last used.
+   *
+   * @return the usage in bytes.
+   */
+  public synchronized long getUsage() {
+    return usage;
+  }
+
+  /**
+   * Gets the number of times a graph was served from the cache, including the times a thread
+   * waited for another thread that was already loading the same file.
+   *
+   * @return the hit count.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Gets the number of times a graph had to be loaded.
+   *
+   * @return the miss count.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /** A load of a version of a file that is in progress, which other threads can wait on. */
+  private static final class Load {
+    private final CompletableFuture<Graph<String>> graph = new CompletableFuture<>();
+    private final long fileSize;
+    private final long lastModified;
+
+    /**
+     * Creates a pending load.
+     *
+     * @param fileSize the size of the file in bytes.
+     * @param lastModified the last modified time of the file in nanoseconds.
+     */
+    private Load(final long fileSize, final long lastModified) {
+      this.fileSize = fileSize;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Waits for the load to finish.
+     *
+     * @return the loaded graph.
+     * @throws IOException If the file could not be loaded.
+     */
+    private Graph<String> await() throws IOException {
+      boolean isInterrupted = false;
+      try {
+        while (true) {
+          try {
+            return graph.get();
+          } catch (final InterruptedException e) {
+            isInterrupted = true; // the graph is still needed, so finish waiting for it
+          } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+              throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+              throw (RuntimeException) cause;
+            }
+            throw (Error) cause;
+          }
+        }
+      } finally {
+        if (isInterrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+  }
+
+  /** A cached graph, the version of the file it was loaded from, and its size when last used. */
+  private static final class Entry {
+    private final Graph<String> graph;
+    private final long fileSize;
+    private final long lastModified;
+    private long size;
+
+    /**
+     * Creates an entry.
+     *
+     * @param graph the graph.
+     * @param fileSize the size of the file in bytes.
+     * @param lastModified the last modified time of the file in nanoseconds.
+     */
+    private Entry(final Graph<String> graph, final long fileSize, final long lastModified) {
+      this.graph = graph;
+      this.fileSize = fileSize;
+      this.lastModified = lastModified;
+      this.size = graph.getMemoryUsage();
+    }
+  }
+}
@@ -3,64 +3,310 @@ package nz.ac.auckland.se281;
 import com.paypal.digraph.parser.GraphEdge;
 import com.paypal.digraph.parser.GraphNode;
 import com.paypal.digraph.parser.GraphParser;
+import com.paypal.digraph.parser.GraphParserException;
+import java.io.BufferedWriter;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import nz.ac.auckland.se281.datastructures.BreadthFirstLevels;
 import nz.ac.auckland.se281.datastructures.Edge;
 import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.IncrementalGraph;
 
 /**
- * The calculator that reports properties of graphs to the user.
- *
- * <p>You should not modify this class.
+ * The calculator that reports properties of graphs to the user. It loads snapshots, edge lists and
+ * DOT files, optionally through a shared {@link GraphCache}, and can echo the loaded graph to a
+ * diagnostic writer. Edits are made on a copy of the loaded graph, so a cached graph is never
+ * changed.
  */
 public class GraphCalculator {
   private static final Path TESTCASES = Path.of("testcases");
 
+  private static final int ECHO_BUFFER_SIZE = 1 << 16;
+
   private final Path file;
 
-  private final Collection<GraphNode> verticies;
+  private final Graph<String> graph;
 
-  private final Collection<GraphEdge> edges;
+  private final PrintStream out;
 
-  private final Graph<String> graph;
+  private IncrementalGraph<String> edits;
 
   /**
-   * Creates a new graph calculator.
+   * Creates a new graph calculator that loads the graph silently.
    *
    * @param filename The name of the test case to read.
    * @throws FileNotFoundException If the file does not exist.
    */
   public GraphCalculator(final String filename) throws FileNotFoundException {
+    this(filename, null);
+  }
+
+  /**
+   * Creates a new graph calculator that writes the loaded verticies and edges to a diagnostic sink.
+   *
+   * @param filename The name of the test case to read.
+   * @param diagnostics Where to echo the loaded graph, or null to load silently.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public GraphCalculator(final String filename, final Writer diagnostics)
+      throws FileNotFoundException {
+    this(filename, diagnostics, null);
+  }
+
+  /**
+   * Creates a new graph calculator that takes the graph from a cache of loaded graphs, loading it
+   * only if the file is not cached or has changed.
+   *
+   * @param filename The name of the test case to read.
+   * @param diagnostics Where to echo the loaded graph, or null to load silently.
+   * @param cache The cache of loaded graphs, or null to always load the file.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public GraphCalculator(final String filename, final Writer diagnostics, final GraphCache cache)
+      throws FileNotFoundException {
+    this(filename, diagnostics, cache, System.out);
+  }
+
+  /**
+   * Creates a new graph calculator that prints its reports to a stream, such as the connection of
+   * a client of the {@link GraphServer}.
+   *
+   * @param filename The name of the test case to read.
+   * @param diagnostics Where to echo the loaded graph, or null to load silently.
+   * @param cache The cache of loaded graphs, or null to always load the file.
+   * @param out The stream to print reports to.
+   * @throws FileNotFoundException If the file does not exist.
+   */
+  public GraphCalculator(
+      final String filename,
+      final Writer diagnostics,
+      final GraphCache cache,
+      final PrintStream out)
+      throws FileNotFoundException {
+    this.out = out;
     file = TESTCASES.resolve(filename);
 
-    final GraphParser parser = new GraphParser(new FileInputStream(file.toFile()));
+    if (!Files.isRegularFile(file)) {
+      throw new FileNotFoundException(file.toString());
+    }
+
+    try {
+      graph = cache != null ? cache.get(file, GraphCalculator::loadGraph) : loadGraph(file);
+    } catch (final FileNotFoundException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
 
-    this.verticies = parser.getNodes().values();
-    this.edges = parser.getEdges().values();
+    if (diagnostics != null) {
+      echo(diagnostics);
+    }
+  }
 
-    final Set<String> verticies = new HashSet<>();
+  /**
+   * Loads a binary snapshot, a plain edge list, or a DOT file with the streaming parser, falling
+   * back to the full DOT parser for syntax the streaming parser does not support.
+   *
+   * @param file The snapshot, edge list or DOT file to load.
+   * @return The loaded graph.
+   * @throws IOException If the file cannot be read.
+   */
+  private static Graph<String> loadGraph(final Path file) throws IOException {
+    if (GraphSnapshot.isSnapshot(file)) {
+      return GraphSnapshot.read(file);
+    }
 
-    for (final GraphNode node : this.verticies) {
-      verticies.add(node.getId());
+    Graph<String> graph = EdgeListLoader.load(file);
+    if (graph == null) {
+      graph = StreamingDotParser.parse(file);
     }
+    return graph != null ? graph : loadGraphWithGraphParser(file);
+  }
+
+  /**
+   * Loads a DOT file with the full DOT parser.
+   *
+   * @param file The DOT file to load.
+   * @return The loaded graph.
+   * @throws IOException If the file cannot be read or is not valid DOT.
+   */
+  private static Graph<String> loadGraphWithGraphParser(final Path file) throws IOException {
+    try (InputStream in = new FileInputStream(file.toFile())) {
+      final GraphParser parser;
+      try {
+        parser = new GraphParser(in);
+      } catch (final GraphParserException e) {
+        throw new IOException(file + " is not a valid DOT file", e);
+      }
+
+      final Set<String> verticies = new HashSet<>();
+
+      for (final GraphNode node : parser.getNodes().values()) {
+        verticies.add(unquote(node.getId()));
+      }
+
+      final Set<Edge<String>> edges = new HashSet<>();
 
-    final Set<Edge<String>> edges = new HashSet<>();
+      for (final GraphEdge edge : parser.getEdges().values()) {
+        edges.add(
+            new Edge<>(unquote(edge.getNode1().getId()), unquote(edge.getNode2().getId())));
+      }
 
-    for (final GraphEdge edge : this.edges) {
-      edges.add(new Edge<>(edge.getNode1().getId(), edge.getNode2().getId()));
+      return new Graph<>(verticies, edges);
     }
+  }
 
-    graph = new Graph<>(verticies, edges);
+  /**
+   * Removes the quotes around a quoted DOT id, which the full DOT parser keeps, so {@code "1"} is
+   * the same vertex as {@code 1}.
+   *
+   * @param id The id as parsed.
+   * @return The id without quotes or escapes.
+   */
+  private static String unquote(final String id) {
+    if (id.length() < 2 || id.charAt(0) != '"' || id.charAt(id.length() - 1) != '"') {
+      return id;
+    }
+    return id.substring(1, id.length() - 1).replace("\\\"", "\"");
+  }
+
+  /**
+   * Writes the loaded verticies and edges to a diagnostic sink through one buffered write.
+   *
+   * @param diagnostics Where to echo the loaded graph.
+   */
+  private void echo(final Writer diagnostics) {
+    try {
+      final BufferedWriter writer = new BufferedWriter(diagnostics, ECHO_BUFFER_SIZE);
+      graph.writeVerticiesEdges(writer);
+      writer.flush();
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
   /** Prints the filename of the test case that is loaded. */
   public void printInfo() {
-    MessageCli.INFO.printMessage(TESTCASES.relativize(file).toString());
+    MessageCli.INFO.printMessage(out, TESTCASES.relativize(file).toString());
+  }
+
+  /**
+   * Saves the graph and its relation properties as a binary snapshot in the testcases folder, which
+   * can be opened again without parsing.
+   *
+   * @param filename The name of the snapshot file.
+   * @return If the snapshot was saved.
+   */
+  public boolean saveSnapshot(final String filename) {
+    try {
+      GraphSnapshot.write(graph(), TESTCASES.resolve(filename), true);
+      MessageCli.SAVED_SNAPSHOT.printMessage(out, filename);
+      return true;
+    } catch (final FileAlreadyExistsException e) {
+      MessageCli.SNAPSHOT_NOT_OVERWRITTEN.printMessage(out, filename);
+      return false;
+    } catch (final IOException e) {
+      MessageCli.SNAPSHOT_NOT_SAVED.printMessage(out, filename);
+      return false;
+    }
+  }
+
+  /**
+   * Saves the transitive closure of the current graph as a binary snapshot, that can be opened
+   * again with OPEN_FILE.
+   *
+   * @param filename The name of the snapshot file in the testcases folder.
+   * @return If the closure was saved.
+   */
+  public boolean saveClosure(final String filename) {
+    try {
+      GraphSnapshot.write(graph().getTransitiveClosure(), TESTCASES.resolve(filename), true);
+      MessageCli.SAVED_CLOSURE.printMessage(out, filename);
+      return true;
+    } catch (final FileAlreadyExistsException e) {
+      MessageCli.SNAPSHOT_NOT_OVERWRITTEN.printMessage(out, filename);
+      return false;
+    } catch (final IOException e) {
+      MessageCli.SNAPSHOT_NOT_SAVED.printMessage(out, filename);
+      return false;
+    }
+  }
+
+  /**
+   * Gets the graph that queries run on, which is the loaded graph until it is first edited.
+   *
+   * @return The current graph.
+   */
+  private Graph<String> graph() {
+    return edits != null ? edits.toGraph() : graph;
+  }
+
+  /**
+   * Gets the editable overlay of the loaded graph, creating it on the first edit.
+   *
+   * @return The editable graph.
+   */
+  private IncrementalGraph<String> edits() {
+    if (edits == null) {
+      edits = IncrementalGraph.from(graph);
+    }
+    return edits;
+  }
+
+  /**
+   * Adds a vertex to the graph.
+   *
+   * @param vertex The vertex to add.
+   */
+  public void addVertex(final String vertex) {
+    if (edits().addVertex(vertex)) {
+      MessageCli.VERTEX_ADDED.printMessage(out, vertex);
+    } else {
+      MessageCli.VERTEX_ALREADY_EXISTS.printMessage(out, vertex);
+    }
+  }
+
+  /**
+   * Adds an edge to the graph, adding its verticies if they are not already in the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   */
+  public void addEdge(final String source, final String destination) {
+    if (edits().addEdge(source, destination)) {
+      MessageCli.EDGE_ADDED.printMessage(out, source, destination);
+    } else {
+      MessageCli.EDGE_ALREADY_EXISTS.printMessage(out, source, destination);
+    }
+  }
+
+  /**
+   * Removes an edge from the graph.
+   *
+   * @param source The source vertex.
+   * @param destination The destination vertex.
+   * @return If the edge was in the graph and has been removed.
+   */
+  public boolean removeEdge(final String source, final String destination) {
+    if (edits().removeEdge(source, destination)) {
+      MessageCli.EDGE_REMOVED.printMessage(out, source, destination);
+      return true;
+    }
+    MessageCli.EDGE_NOT_FOUND.printMessage(out, source, destination);
+    return false;
   }
 
   /** Prints the set of verticies and edges in the graph. */
@@ -68,83 +314,139 @@ public class GraphCalculator {
     final StringBuilder sb = new StringBuilder("Verticies:").append(System.lineSeparator());
 
     // Vertically print each vertex.
-    for (final GraphNode node : verticies) {
-      sb.append("\t").append(node.getId()).append(System.lineSeparator());
+    for (final String vertex : graph().sortVertices()) {
+      sb.append("\t").append(vertex).append(System.lineSeparator());
     }
 
     sb.append(System.lineSeparator()).append("Edges:").append(System.lineSeparator());
 
     // Vertically print each edge between verticies.
-    for (final GraphEdge edge : edges) {
+    for (final Edge<String> edge : graph().sortEdges()) {
       sb.append("\t")
-          .append(edge.getNode1().getId())
+          .append(edge.getSource())
           .append(" -> ")
-          .append(edge.getNode2().getId())
+          .append(edge.getDestination())
           .append(System.lineSeparator());
     }
 
-    System.out.print(sb.toString());
+    out.print(sb.toString());
   }
 
   /** Prints the set of verticies in the graph that are root verticies. */
   public void printRoots() {
-    System.out.println(graph.getRoots());
+    out.println(graph().getRoots());
+  }
+
+  /**
+   * Prints the strongly connected components of the graph in topological order, marking the
+   * source components that nothing outside of them can reach.
+   */
+  public void printComponents() {
+    final Graph<String> current = graph();
+    final List<Set<String>> components = current.getStronglyConnectedComponents();
+    final List<Set<String>> sources = current.getSourceComponents();
+
+    int next = 0;
+    for (int i = 0; i < components.size(); i++) {
+      final String members = components.get(i).toString();
+      if (next < sources.size() && sources.get(next).equals(components.get(i))) {
+        MessageCli.SOURCE_COMPONENT.printMessage(out, String.valueOf(i), members);
+        next++;
+      } else {
+        MessageCli.COMPONENT.printMessage(out, String.valueOf(i), members);
+      }
+    }
   }
 
   /** Prints if the set of verticies in the graph exhibit the reflexivity property. */
   public void printReflexitivity() {
-    MessageCli.GRAPH_REFLEXIVE.printMessage(prefixNot(graph.isReflexive()));
+    final boolean isReflexive = edits != null ? edits.isReflexive() : graph.isReflexive();
+    MessageCli.GRAPH_REFLEXIVE.printMessage(out, prefixNot(isReflexive));
   }
 
   /** Prints if the set of edges in the graph exhibit the symmetric property. */
   public void printSymmetry() {
-    MessageCli.GRAPH_SYMMETRIC.printMessage(prefixNot(graph.isSymmetric()));
+    final boolean isSymmetric = edits != null ? edits.isSymmetric() : graph.isSymmetric();
+    MessageCli.GRAPH_SYMMETRIC.printMessage(out, prefixNot(isSymmetric));
   }
 
   /** Prints if the set of edges in the graph exhibit transitivity. */
   public void printTransitivity() {
-    MessageCli.GRAPH_TRANSITIVE.printMessage(prefixNot(graph.isTransitive()));
+    MessageCli.GRAPH_TRANSITIVE.printMessage(out, prefixNot(graph().isTransitive()));
   }
 
   /** Prints if the set of edges in the graph exhibit anti-symmetry. */
   public void printAntiSymmetry() {
-    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(prefixNot(graph.isAntiSymmetric()));
+    final boolean isAntiSymmetric =
+        edits != null ? edits.isAntiSymmetric() : graph.isAntiSymmetric();
+    MessageCli.GRAPH_ANTI_SYMMETRIC.printMessage(out, prefixNot(isAntiSymmetric));
   }
 
   /** Prints if the entire graph is considered an equivalence relation. */
   public void printEquivalence() {
-    MessageCli.GRAPH_EQUIVALENCE.printMessage(prefixNot(graph.isEquivalence()));
+    final boolean isEquivalence = edits != null ? edits.isEquivalence() : graph.isEquivalence();
+    MessageCli.GRAPH_EQUIVALENCE.printMessage(out, prefixNot(isEquivalence));
   }
 
   /**
-   * Prints the verticies in the equivalence class of the given vertex.
+   * Prints the verticies in the equivalence class of the given vertex, in dictionary order so
+   * numbers are ordered by value.
    *
    * @param vertex The vertex to compute the equivalence class of.
    */
   public void printEquivalenceClass(final String vertex) {
-    final Object[] equivalenceClass = graph.getEquivalenceClass(vertex).toArray();
-    Arrays.sort(equivalenceClass);
-    System.out.println(Arrays.toString(equivalenceClass));
+    final Object[] equivalenceClass = graph().getEquivalenceClass(vertex).toArray();
+    out.println(Arrays.toString(equivalenceClass));
+  }
+
+  /**
+   * Prints if one vertex can be reached from another by following edges.
+   *
+   * @param source The vertex to start from.
+   * @param destination The vertex to reach.
+   */
+  public void printReachability(final String source, final String destination) {
+    MessageCli.GRAPH_REACHABLE.printMessage(
+        out, destination, prefixNot(graph().isReachable(source, destination)), source);
   }
 
   /** Prints the search order of an iterative breadth first search. */
   public void printIterativeBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeBreadthFirstSearch().toArray()));
+    out.println(Arrays.toString(graph().iterativeBreadthFirstSearch().toArray()));
   }
 
   /** Prints the search order of an iterative depth first search. */
   public void printDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.iterativeDepthFirstSearch().toArray()));
+    out.println(Arrays.toString(graph().iterativeDepthFirstSearch().toArray()));
   }
 
   /** Prints the search order of a recursive breadth first search. */
   public void printRecursiveBreadthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveBreadthFirstSearch().toArray()));
+    out.println(Arrays.toString(graph().recursiveBreadthFirstSearch().toArray()));
   }
 
   /** Prints the search order of a recursive depth first search. */
   public void printRecursiveDepthFirstSearch() {
-    System.out.println(Arrays.toString(graph.recursiveDepthFirstSearch().toArray()));
+    out.println(Arrays.toString(graph().recursiveDepthFirstSearch().toArray()));
+  }
+
+  /** Prints the search order of a breadth first search that expands each level in parallel. */
+  public void printParallelBreadthFirstSearch() {
+    out.println(Arrays.toString(graph().parallelBreadthFirstSearch().toArray()));
+  }
+
+  /** Prints each level of a direction-optimizing breadth first search, with its timing. */
+  public void printBreadthFirstLevels() {
+    final BreadthFirstLevels<String> levels = graph().breadthFirstLevels();
+
+    for (int level = 0; level < levels.getLevels().size(); level++) {
+      MessageCli.SEARCH_LEVEL.printMessage(
+          out,
+          String.valueOf(level),
+          Arrays.toString(levels.getLevels().get(level).toArray()),
+          levels.isBottomUp(level) ? "bottom-up" : "top-down",
+          String.valueOf(levels.getLevelNanos(level) / 1000));
+    }
   }
 
   /**
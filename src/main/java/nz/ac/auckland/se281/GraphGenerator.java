@@ -0,0 +1,427 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * A generator of large synthetic graphs for load and stress testing, written as DOT or plain edge
+ * list files that {@link GraphCalculator} can open. The verticies are the numbers 0 up to the
+ * vertex count, and the same family, size, parameter and seed always give the same file.
+ *
+ * <p>Edges are streamed straight to the file as they are generated, so only a bitset of the
+ * verticies is kept in memory, however many edges are written. A generated family may repeat an
+ * edge, which the loaders treat as a single edge.
+ *
+ * <p>It can be run from the command line as {@code GraphGenerator <family> <format> <verticies>
+ * <parameter> <seed> <file>}, such as {@code GraphGenerator rmat edge_list 1000000 16000000 281
+ * testcases/rmat.txt}.
+ */
+public final class GraphGenerator {
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The families of graphs, each with its own meaning of the parameter. */
+  public enum Family {
+    /** Edges between different verticies chosen uniformly, the parameter is the edge count. */
+    ERDOS_RENYI {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        if (vertexCount < 2) {
+          throw new IllegalArgumentException("an Erdos-Renyi graph needs at least 2 verticies");
+        }
+        for (long i = 0; i < parameter; i++) {
+          int source = random.nextInt(vertexCount);
+          int destination = random.nextInt(vertexCount - 1);
+          sink.accept(source, destination < source ? destination : destination + 1);
+        }
+      }
+    },
+
+    /**
+     * A power-law graph from the recursive matrix (R-MAT) model, where each edge picks a quarter of
+     * the adjacency matrix again and again with the probabilities 0.57, 0.19, 0.19 and 0.05, so a
+     * few verticies have most of the edges. The parameter is the edge count.
+     */
+    RMAT {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        int scale = Integer.SIZE - Integer.numberOfLeadingZeros(Math.max(1, vertexCount - 1));
+        for (long i = 0; i < parameter; i++) {
+          int source;
+          int destination;
+          do { // edges outside a vertex count that is not a power of two are drawn again
+            source = 0;
+            destination = 0;
+            for (int bit = scale - 1; bit >= 0; bit--) {
+              double quarter = random.nextDouble();
+              if (quarter >= 0.57 + 0.19 + 0.19) {
+                source |= 1 << bit;
+                destination |= 1 << bit;
+              } else if (quarter >= 0.57 + 0.19) {
+                source |= 1 << bit;
+              } else if (quarter >= 0.57) {
+                destination |= 1 << bit;
+              }
+            }
+          } while (source >= vertexCount || destination >= vertexCount);
+          sink.accept(source, destination);
+        }
+      }
+    },
+
+    /** Separate long paths that split the verticies evenly, the parameter is the path count. */
+    CHAIN {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        int chains = checkAtMostVerticies(vertexCount, parameter);
+        for (int chain = 0; chain < chains; chain++) {
+          int end = end(vertexCount, chains, chain);
+          for (int vertex = start(vertexCount, chains, chain); vertex + 1 < end; vertex++) {
+            sink.accept(vertex, vertex + 1);
+          }
+        }
+      }
+    },
+
+    /**
+     * A layered acyclic graph like h.txt, with edges only from each layer to the next. Every vertex
+     * below the first layer has an edge from a random vertex of the layer above, and every vertex
+     * above the last layer has an edge to a random vertex of the layer below, so the first layer
+     * holds every root. The parameter is the layer count.
+     */
+    LAYERED {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        int layers = checkAtMostVerticies(vertexCount, parameter);
+        for (int layer = 0; layer + 1 < layers; layer++) {
+          int start = start(vertexCount, layers, layer);
+          int next = end(vertexCount, layers, layer);
+          int nextEnd = end(vertexCount, layers, layer + 1);
+          for (int vertex = next; vertex < nextEnd; vertex++) {
+            sink.accept(start + random.nextInt(next - start), vertex);
+          }
+          for (int vertex = start; vertex < next; vertex++) {
+            sink.accept(vertex, next + random.nextInt(nextEnd - next));
+          }
+        }
+      }
+    },
+
+    /**
+     * A grid with edges to the right and downwards, filled row by row, the parameter is the number
+     * of columns.
+     */
+    GRID {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        int columns = checkAtMostVerticies(vertexCount, parameter);
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+          if (vertex % columns + 1 < columns && vertex + 1 < vertexCount) {
+            sink.accept(vertex, vertex + 1);
+          }
+          if (vertex + columns < vertexCount) {
+            sink.accept(vertex, vertex + columns);
+          }
+        }
+      }
+    },
+
+    /**
+     * An exact equivalence relation, with every edge inside each of the clusters that split the
+     * verticies evenly, self loops included. The parameter is the cluster count.
+     */
+    EQUIVALENCE {
+      @Override
+      void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+          throws IOException {
+        int clusters = checkAtMostVerticies(vertexCount, parameter);
+        for (int cluster = 0; cluster < clusters; cluster++) {
+          int start = start(vertexCount, clusters, cluster);
+          int end = end(vertexCount, clusters, cluster);
+          for (int source = start; source < end; source++) {
+            for (int destination = start; destination < end; destination++) {
+              sink.accept(source, destination);
+            }
+          }
+        }
+      }
+    };
+
+    /**
+     * Generates every edge of a graph in this family.
+     *
+     * @param vertexCount the number of verticies.
+     * @param parameter the parameter of the family.
+     * @param random the source of any random choices.
+     * @param sink where to send each edge.
+     * @throws IOException If the sink cannot take an edge.
+     * @throws IllegalArgumentException If the parameter does not suit the vertex count.
+     */
+    abstract void generate(int vertexCount, long parameter, SplittableRandom random, EdgeSink sink)
+        throws IOException;
+
+    /**
+     * Checks that a parameter splits the verticies into parts that each have a vertex.
+     *
+     * @param vertexCount the number of verticies.
+     * @param parameter the number of parts.
+     * @return the number of parts.
+     * @throws IllegalArgumentException If there are more parts than verticies.
+     */
+    static int checkAtMostVerticies(int vertexCount, long parameter) {
+      if (parameter > vertexCount) {
+        throw new IllegalArgumentException(
+            "the parameter " + parameter + " is more than the " + vertexCount + " verticies");
+      }
+      return (int) parameter;
+    }
+
+    /**
+     * Gets the first vertex of a part of the verticies, when they are split into nearly equal
+     * parts.
+     *
+     * @param vertexCount the number of verticies.
+     * @param parts the number of parts.
+     * @param part the part.
+     * @return the first vertex of the part.
+     */
+    static int start(int vertexCount, int parts, int part) {
+      return (int) ((long) vertexCount * part / parts);
+    }
+
+    /**
+     * Gets one past the last vertex of a part of the verticies.
+     *
+     * @param vertexCount the number of verticies.
+     * @param parts the number of parts.
+     * @param part the part.
+     * @return one past the last vertex of the part.
+     */
+    static int end(int vertexCount, int parts, int part) {
+      return start(vertexCount, parts, part + 1);
+    }
+  }
+
+  /** The file formats the generator can write. */
+  public enum Format {
+    /** A DOT digraph, with a node statement for each vertex that has no edges. */
+    DOT,
+
+    /** A plain edge list, which cannot hold verticies that have no edges. */
+    EDGE_LIST
+  }
+
+  /** Takes the edges of a graph as they are generated. */
+  @FunctionalInterface
+  public interface EdgeSink {
+    /**
+     * Takes an edge.
+     *
+     * @param source the source vertex.
+     * @param destination the destination vertex.
+     * @throws IOException If the edge cannot be written.
+     */
+    void accept(int source, int destination) throws IOException;
+  }
+
+  private final Family family;
+  private final int vertexCount;
+  private final long parameter;
+  private final long seed;
+
+  /**
+   * Creates a generator of one graph.
+   *
+   * @param family the family of the graph.
+   * @param vertexCount the number of verticies.
+   * @param parameter the parameter of the family.
+   * @param seed the seed of the random choices.
+   * @throws IllegalArgumentException If the vertex count or the parameter is less than 1.
+   */
+  public GraphGenerator(Family family, int vertexCount, long parameter, long seed) {
+    if (vertexCount < 1 || parameter < 1) {
+      throw new IllegalArgumentException("the vertex count and the parameter must be at least 1");
+    }
+    this.family = family;
+    this.vertexCount = vertexCount;
+    this.parameter = parameter;
+    this.seed = seed;
+  }
+
+  /**
+   * Generates every edge of the graph.
+   *
+   * @param sink where to send each edge.
+   * @throws IOException If the sink cannot take an edge.
+   */
+  public void generate(EdgeSink sink) throws IOException {
+    family.generate(vertexCount, parameter, new SplittableRandom(seed), sink);
+  }
+
+  /**
+   * Writes the graph to a file, replacing the file if it exists.
+   *
+   * @param file the file to write.
+   * @param format the format of the file.
+   * @throws IOException If the file cannot be written.
+   */
+  public void write(Path file, Format format) throws IOException {
+    try (EdgeWriter writer = new EdgeWriter(Files.newOutputStream(file), format)) {
+      writer.writeText(
+          (format == Format.DOT ? "// " : "# ")
+              + family.name().toLowerCase()
+              + " graph, verticies: "
+              + vertexCount
+              + ", parameter: "
+              + parameter
+              + ", seed: "
+              + seed
+              + "\n");
+      if (format == Format.DOT) {
+        writer.writeText("digraph G {\n");
+      }
+      generate(writer);
+      if (format == Format.DOT) {
+        writer.writeUntouchedVerticies();
+        writer.writeText("}\n");
+      }
+    }
+  }
+
+  /** Writes edges as lines of ASCII digits through a byte buffer. */
+  private final class EdgeWriter implements EdgeSink, AutoCloseable {
+    private final OutputStream out;
+    private final Format format;
+    private final long[] touched;
+    private final byte[] line = new byte[2 * 11 + 8];
+
+    /**
+     * Creates a writer of edges.
+     *
+     * @param out the stream to write to.
+     * @param format the format of the edges.
+     */
+    private EdgeWriter(OutputStream out, Format format) {
+      this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+      this.format = format;
+      this.touched =
+          format == Format.DOT ? new long[(vertexCount + Long.SIZE - 1) / Long.SIZE] : null;
+    }
+
+    @Override
+    public void accept(int source, int destination) throws IOException {
+      int length = 0;
+      if (format == Format.DOT) {
+        touched[source >>> 6] |= 1L << source;
+        touched[destination >>> 6] |= 1L << destination;
+        line[length++] = ' ';
+        line[length++] = ' ';
+        length = appendInt(source, length);
+        line[length++] = ' ';
+        line[length++] = '-';
+        line[length++] = '>';
+        line[length++] = ' ';
+        length = appendInt(destination, length);
+        line[length++] = ';';
+      } else {
+        length = appendInt(source, length);
+        line[length++] = ' ';
+        length = appendInt(destination, length);
+      }
+      line[length++] = '\n';
+      out.write(line, 0, length);
+    }
+
+    /**
+     * Writes a node statement for every vertex that is not in any edge, so it is still loaded.
+     *
+     * @throws IOException If the statements cannot be written.
+     */
+    private void writeUntouchedVerticies() throws IOException {
+      for (int vertex = 0; vertex < vertexCount; vertex++) {
+        if ((touched[vertex >>> 6] & (1L << vertex)) == 0) {
+          int length = 0;
+          line[length++] = ' ';
+          line[length++] = ' ';
+          length = appendInt(vertex, length);
+          line[length++] = ';';
+          line[length++] = '\n';
+          out.write(line, 0, length);
+        }
+      }
+    }
+
+    /**
+     * Writes some ASCII text.
+     *
+     * @param text the text.
+     * @throws IOException If the text cannot be written.
+     */
+    private void writeText(String text) throws IOException {
+      out.write(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Appends the digits of a number that is not negative to the line.
+     *
+     * @param value the number.
+     * @param length the length of the line so far.
+     * @return the length of the line with the digits.
+     */
+    private int appendInt(int value, int length) {
+      int digits = 1;
+      for (int rest = value; rest >= 10; rest /= 10) {
+        digits++;
+      }
+      int end = length + digits;
+      int position = end;
+      do {
+        line[--position] = (byte) ('0' + value % 10);
+        value /= 10;
+      } while (value != 0);
+      return end;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Generates a graph file from the command line.
+   *
+   * @param args the family, format, vertex count, parameter, seed and file.
+   */
+  public static void main(String[] args) {
+    if (args.length != 6) {
+      System.err.println(
+          "Usage: GraphGenerator <family> <format> <verticies> <parameter> <seed> <file>");
+      System.err.println("  families: erdos_renyi, rmat, chain, layered, grid, equivalence");
+      System.err.println("  formats: dot, edge_list");
+      System.exit(1);
+    }
+
+    try {
+      GraphGenerator generator =
+          new GraphGenerator(
+              Family.valueOf(args[0].toUpperCase()),
+              Integer.parseInt(args[2]),
+              Long.parseLong(args[3]),
+              Long.parseLong(args[4]));
+      generator.write(Path.of(args[5]), Format.valueOf(args[1].toUpperCase()));
+    } catch (IllegalArgumentException | IOException e) {
+      System.err.println("Error: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+}
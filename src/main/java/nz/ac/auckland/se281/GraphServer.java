@@ -0,0 +1,215 @@
+package nz.ac.auckland.se281;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A server that keeps graphs loaded and answers the commands of the command line interface from
+ * local clients, so a graph is loaded once and then queried by many clients at the same time.
+ *
+ * <p>The server only listens on the loopback address. Each client connection is a session with its
+ * own {@link Main} interface, reading one command per line and answering with the same output the
+ * interactive interface prints, followed by a line holding {@value #RESPONSE_END}. The session ends
+ * after the exit command or when the client closes the connection.
+ *
+ * <p>Every session opens files through the same {@link GraphCache}, so clients share the loaded
+ * graphs and every analysis computed on them. The shared graphs are only read: edits are made on a
+ * copy belonging to the session, see {@link GraphCalculator#addEdge(String, String)}.
+ *
+ * <p>Clients cannot run the commands that save files, SAVE_SNAPSHOT and SAVE_CLOSURE, as they
+ * would let any local client write into the testcases folder of the server. They are refused with
+ * an error unless the server is created with file writes allowed, such as with {@code --serve
+ * <port> --allow-file-writes}.
+ *
+ * <p>Each session runs on its own virtual thread when the runtime supports them, so a blocked
+ * client costs little, and on a platform thread from a cached pool otherwise.
+ */
+public final class GraphServer implements Runnable, Closeable {
+  /** The line that ends the answer to every command. */
+  public static final String RESPONSE_END = "<END>";
+
+  private static final int BACKLOG = 128;
+  private static final int RESPONSE_BUFFER_SIZE = 1 << 16;
+
+  private final ServerSocket serverSocket;
+  private final GraphCache cache;
+  private final ExecutorService sessions;
+  private final boolean allowsFileWrites;
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Creates a server listening on a port of the loopback address. Clients are not accepted until
+   * the server is run.
+   *
+   * @param port the port, or 0 for any free port.
+   * @param cache the cache of loaded graphs shared by every session.
+   * @throws IOException If the port cannot be opened.
+   */
+  public GraphServer(final int port, final GraphCache cache) throws IOException {
+    this(port, cache, false);
+  }
+
+  /**
+   * Creates a server listening on a port of the loopback address, whose clients may or may not
+   * run the commands that save files. Clients are not accepted until the server is run.
+   *
+   * @param port the port, or 0 for any free port.
+   * @param cache the cache of loaded graphs shared by every session.
+   * @param allowsFileWrites if clients may run the commands that save files.
+   * @throws IOException If the port cannot be opened.
+   */
+  public GraphServer(final int port, final GraphCache cache, final boolean allowsFileWrites)
+      throws IOException {
+    this.serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    this.cache = cache;
+    this.sessions = newSessionExecutor();
+    this.allowsFileWrites = allowsFileWrites;
+  }
+
+  /**
+   * Creates the executor that runs a session per task, on a virtual thread per task when the
+   * runtime has them. They are looked up reflectively so the server still runs on runtimes
+   * without them.
+   *
+   * @return the executor.
+   */
+  private static ExecutorService newSessionExecutor() {
+    try {
+      return (ExecutorService)
+          Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (final ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(
+          task -> {
+            final Thread thread = new Thread(task, "graph-server-session");
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the port.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets the address the server listens on.
+   *
+   * @return the loopback address and port.
+   */
+  public InetSocketAddress getAddress() {
+    return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+  }
+
+  /**
+   * Runs the server on a new thread.
+   *
+   * @return the thread accepting clients.
+   */
+  public Thread start() {
+    final Thread thread = new Thread(this, "graph-server");
+    thread.setDaemon(true);
+    thread.start();
+    return thread;
+  }
+
+  /** Accepts clients and starts a session for each one, until the server is closed. */
+  @Override
+  public void run() {
+    while (!serverSocket.isClosed()) {
+      final Socket client;
+      try {
+        client = serverSocket.accept();
+      } catch (final SocketException e) {
+        return; // the server was closed
+      } catch (final IOException e) {
+        continue; // the client went away before it was accepted
+      }
+
+      clients.add(client);
+      try {
+        sessions.execute(() -> serve(client));
+      } catch (final RejectedExecutionException e) {
+        close(client); // the server is closing
+      }
+    }
+  }
+
+  /**
+   * Answers the commands of a client until it exits or disconnects.
+   *
+   * @param client the connection to the client.
+   */
+  private void serve(final Socket client) {
+    try (Scanner scanner = new Scanner(client.getInputStream(), StandardCharsets.UTF_8);
+        PrintStream out =
+            new PrintStream(
+                new BufferedOutputStream(client.getOutputStream(), RESPONSE_BUFFER_SIZE),
+                false,
+                StandardCharsets.UTF_8)) {
+      final Main session = new Main(scanner, cache, out, allowsFileWrites);
+
+      boolean isOpen = true;
+      while (isOpen && scanner.hasNextLine()) {
+        final String command = scanner.nextLine().trim();
+        if (command.isEmpty()) {
+          continue;
+        }
+
+        isOpen = session.runCommand(command, out);
+        out.println(RESPONSE_END);
+        out.flush();
+      }
+    } catch (final IOException e) {
+      // the client disconnected, there is no one left to answer
+    } finally {
+      close(client);
+    }
+  }
+
+  /**
+   * Closes the connection to a client.
+   *
+   * @param client the connection.
+   */
+  private void close(final Socket client) {
+    clients.remove(client);
+    try {
+      client.close();
+    } catch (final IOException e) {
+      // the connection is already unusable
+    }
+  }
+
+  /** Stops accepting clients and ends every session. */
+  @Override
+  public void close() {
+    try {
+      serverSocket.close();
+    } catch (final IOException e) {
+      // the server socket is already unusable
+    }
+    sessions.shutdown();
+    for (final Socket client : clients) {
+      close(client);
+    }
+  }
+}
@@ -1,18 +1,105 @@
 package nz.ac.auckland.se281;
 
+import java.io.BufferedOutputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Scanner;
 
 /**
- * The entry point of the graph calculator command line interface.
- *
- * <p>You should not modify this class.
+ * The entry point of the graph calculator command line interface. Besides the interactive prompt,
+ * it runs scripts and standard input in batch mode and starts the {@link GraphServer}, and each
+ * instance is the session of one client of the server.
  */
 public class Main {
   private static final String COMMAND_PREFIX = "graph-calculator> ";
+  private static final String COMMENT_PREFIX = "#";
+  private static final int BATCH_BUFFER_SIZE = 1 << 16;
 
+  /** The exit code of a batch run where every command succeeded. */
+  public static final int EXIT_SUCCESS = 0;
+
+  /** The exit code of a batch run where at least one command failed. */
+  public static final int EXIT_FAILURE = 1;
+
+  /** The exit code when the command line arguments or the script cannot be used. */
+  public static final int EXIT_USAGE = 2;
+
+  /**
+   * Starts the command line interface. With {@code --script <file>} the commands in the file are
+   * run in batch mode, and with {@code --batch} the commands on standard input are. With {@code
+   * --serve <port>} a {@link GraphServer} answers commands from local clients until it is stopped,
+   * and {@code --allow-file-writes} after the port lets its clients save files, otherwise the
+   * commands are read interactively.
+   *
+   * @param args The command line arguments.
+   */
   public static void main(final String[] args) {
-    new Main(new Scanner(System.in)).start();
+    if (args.length == 0) {
+      new Main(new Scanner(System.in)).start();
+      return;
+    }
+
+    final int exitCode;
+    if (args.length == 1 && args[0].equals("--batch")) {
+      exitCode = new Main(new Scanner(System.in)).runBatch();
+    } else if (args.length == 2 && args[0].equals("--script")) {
+      exitCode = runScript(args[1]);
+    } else if (args.length == 2 && args[0].equals("--serve")) {
+      exitCode = serve(args[1], false);
+    } else if (args.length == 3
+        && args[0].equals("--serve")
+        && args[2].equals("--allow-file-writes")) {
+      exitCode = serve(args[1], true);
+    } else {
+      System.err.println(
+          "Usage: Main [--batch | --script <file> | --serve <port> [--allow-file-writes]]");
+      exitCode = EXIT_USAGE;
+    }
+    System.exit(exitCode);
+  }
+
+  /**
+   * Runs the commands in a script file in batch mode.
+   *
+   * @param script The path of the script file.
+   * @return The exit code of the run.
+   */
+  private static int runScript(final String script) {
+    try (Scanner scanner = new Scanner(Path.of(script), StandardCharsets.UTF_8)) {
+      return new Main(scanner).runBatch();
+    } catch (final IOException e) {
+      System.err.println("Error: script '" + script + "' could not be read");
+      return EXIT_USAGE;
+    }
+  }
+
+  /**
+   * Runs a graph server on a port of the loopback address until the process is stopped.
+   *
+   * @param port The port to listen on, or 0 for any free port.
+   * @param allowsFileWrites If clients may run the commands that save files.
+   * @return The exit code if the server could not be started.
+   */
+  private static int serve(final String port, final boolean allowsFileWrites) {
+    final GraphServer server;
+    try {
+      server = new GraphServer(Integer.parseInt(port), new GraphCache(), allowsFileWrites);
+    } catch (final NumberFormatException e) {
+      System.err.println("Error: port '" + port + "' is not a number");
+      return EXIT_USAGE;
+    } catch (final IOException e) {
+      System.err.println("Error: port '" + port + "' could not be opened: " + e.getMessage());
+      return EXIT_USAGE;
+    }
+
+    Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+    System.out.println("Serving graphs on " + server.getAddress());
+    server.run();
+    return EXIT_SUCCESS;
   }
 
   /**
@@ -44,30 +131,142 @@ public class Main {
 
   private final Scanner scanner;
 
+  private final GraphCache cache;
+
+  private final boolean allowsFileWrites;
+
+  private PrintStream out;
+
   private GraphCalculator calculator;
 
+  private int failureCount;
+
   /**
    * Create a new command line interface.
    *
    * @param scanner The scanner to read user input from.
    */
   public Main(final Scanner scanner) {
+    this(scanner, new GraphCache());
+  }
+
+  /**
+   * Create a new command line interface that opens files through a cache of loaded graphs, which
+   * may be shared with other interfaces.
+   *
+   * @param scanner The scanner to read user input from.
+   * @param cache The cache of loaded graphs.
+   */
+  public Main(final Scanner scanner, final GraphCache cache) {
+    this(scanner, cache, System.out);
+  }
+
+  /**
+   * Create a new command line interface that prints to a stream, such as the connection of a
+   * client of the {@link GraphServer}.
+   *
+   * @param scanner The scanner to read user input from.
+   * @param cache The cache of loaded graphs.
+   * @param out The stream to print to.
+   */
+  public Main(final Scanner scanner, final GraphCache cache, final PrintStream out) {
+    this(scanner, cache, out, true);
+  }
+
+  /**
+   * Create a new command line interface that prints to a stream, and that may be stopped from
+   * saving files, such as a session of a client of the {@link GraphServer}.
+   *
+   * @param scanner The scanner to read user input from.
+   * @param cache The cache of loaded graphs.
+   * @param out The stream to print to.
+   * @param allowsFileWrites If the commands that save files may be run.
+   */
+  public Main(
+      final Scanner scanner,
+      final GraphCache cache,
+      final PrintStream out,
+      final boolean allowsFileWrites) {
     this.scanner = scanner;
+    this.cache = cache;
+    this.out = out;
+    this.allowsFileWrites = allowsFileWrites;
   }
 
   /** Process commands from the user for the graph calculator command line interface. */
   public void start() {
-    System.out.println(help());
+    out.println(help());
 
     String command;
 
     // Prompt and process commands until the exit command.
     do {
-      System.out.print(COMMAND_PREFIX);
+      out.print(COMMAND_PREFIX);
       command = scanner.nextLine().trim();
     } while (processCommand(command));
   }
 
+  /**
+   * Process every command from the scanner without the help menu or prompts, until the exit command
+   * or the end of the input. Blank lines and lines starting with {@value #COMMENT_PREFIX} are
+   * skipped. Output is buffered and only flushed at the end, so it must not be interleaved with
+   * anything reading it line by line.
+   *
+   * @return {@link #EXIT_SUCCESS} if every command succeeded, otherwise {@link #EXIT_FAILURE}.
+   */
+  public int runBatch() {
+    final PrintStream console = out;
+    final PrintStream buffered =
+        new PrintStream(new BufferedOutputStream(console, BATCH_BUFFER_SIZE), false);
+    out = buffered;
+
+    try {
+      while (scanner.hasNextLine()) {
+        final String command = scanner.nextLine().trim();
+        if (command.isEmpty() || command.startsWith(COMMENT_PREFIX)) {
+          continue;
+        }
+
+        if (!runCommand(command, System.err)) {
+          break;
+        }
+      }
+    } finally {
+      buffered.flush();
+      out = console;
+    }
+
+    return failureCount == 0 ? EXIT_SUCCESS : EXIT_FAILURE;
+  }
+
+  /**
+   * Execute one command, reporting a command that fails unexpectedly instead of throwing, so the
+   * commands after it can still run.
+   *
+   * @param command The command to run.
+   * @param errors The stream to report unexpected failures on.
+   * @return If another command is expected, false after the exit command.
+   */
+  public boolean runCommand(final String command, final PrintStream errors) {
+    try {
+      return processCommand(command);
+    } catch (final RuntimeException e) {
+      out.flush();
+      MessageCli.COMMAND_FAILED.printMessage(errors, command, e.toString());
+      failureCount++;
+      return true;
+    }
+  }
+
+  /**
+   * Gets the number of commands that have failed so far.
+   *
+   * @return The failure count.
+   */
+  public int getFailureCount() {
+    return failureCount;
+  }
+
   /**
    * Execute a command entered by the user and determine if more commands are expected.
    *
@@ -89,7 +288,8 @@ public class Main {
       // Command names correspond to the enum names.
       command = Command.valueOf(commandStr);
     } catch (final Exception e) {
-      MessageCli.COMMAND_NOT_FOUND.printMessage(commandStr);
+      MessageCli.COMMAND_NOT_FOUND.printMessage(out, commandStr);
+      failureCount++;
       return true;
     }
 
@@ -97,7 +297,16 @@ public class Main {
     if (!checkArgs(command, args)) {
       final String numCommandArgs = String.valueOf(command.getNumArgs());
       final String plural = command.getNumArgs() > 1 ? "s" : "";
-      MessageCli.WRONG_ARGUMENT_COUNT.printMessage(numCommandArgs, plural, commandStr);
+      MessageCli.WRONG_ARGUMENT_COUNT.printMessage(out, numCommandArgs, plural, commandStr);
+      failureCount++;
+      return true;
+    }
+
+    // The commands that save files are refused when the interface may not write files.
+    if (!allowsFileWrites
+        && (command == Command.SAVE_SNAPSHOT || command == Command.SAVE_CLOSURE)) {
+      MessageCli.FILE_WRITES_NOT_ALLOWED.printMessage(out, commandStr);
+      failureCount++;
       return true;
     }
 
@@ -108,7 +317,8 @@ public class Main {
         && command != Command.OPEN_FILE
         && command != Command.EXIT
         && command != Command.HELP) {
-      MessageCli.FILE_NOT_OPEN.printMessage();
+      MessageCli.FILE_NOT_OPEN.printMessage(out);
+      failureCount++;
       return true;
     }
 
@@ -117,21 +327,49 @@ public class Main {
         final String filename = args[1];
 
         try {
-          calculator = new GraphCalculator(filename);
-          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(filename);
+          calculator = new GraphCalculator(filename, null, cache, out);
+          MessageCli.OPENED_FILE_SUCCESSFULLY.printMessage(out, filename);
         } catch (FileNotFoundException e) {
-          MessageCli.FILE_NOT_FOUND.printMessage(filename);
+          MessageCli.FILE_NOT_FOUND.printMessage(out, filename);
+          failureCount++;
+        } catch (UncheckedIOException e) {
+          MessageCli.FILE_NOT_LOADED.printMessage(out, filename);
+          failureCount++;
         }
         break;
       case INFO:
         calculator.printInfo();
         break;
+      case SAVE_SNAPSHOT:
+        if (!calculator.saveSnapshot(args[1])) {
+          failureCount++;
+        }
+        break;
+      case SAVE_CLOSURE:
+        if (!calculator.saveClosure(args[1])) {
+          failureCount++;
+        }
+        break;
       case LIST_VERTICIES_EDGES:
         calculator.printVerticiesEdges();
         break;
       case LIST_ROOT_VERTICIES:
         calculator.printRoots();
         break;
+      case LIST_COMPONENTS:
+        calculator.printComponents();
+        break;
+      case ADD_VERTEX:
+        calculator.addVertex(args[1]);
+        break;
+      case ADD_EDGE:
+        calculator.addEdge(args[1], args[2]);
+        break;
+      case REMOVE_EDGE:
+        if (!calculator.removeEdge(args[1], args[2])) {
+          failureCount++;
+        }
+        break;
       case CHECK_REFLEXIVITY:
         calculator.printReflexitivity();
         break;
@@ -150,6 +388,9 @@ public class Main {
       case COMPUTE_EQUIVALENCE:
         calculator.printEquivalenceClass(args[1]);
         break;
+      case CHECK_REACHABILITY:
+        calculator.printReachability(args[1], args[2]);
+        break;
       case GRAPH_SEARCH_IBFS:
         calculator.printIterativeBreadthFirstSearch();
         break;
@@ -162,13 +403,19 @@ public class Main {
       case GRAPH_SEARCH_RDFS:
         calculator.printRecursiveDepthFirstSearch();
         break;
+      case GRAPH_SEARCH_PBFS:
+        calculator.printParallelBreadthFirstSearch();
+        break;
+      case GRAPH_SEARCH_LEVELS:
+        calculator.printBreadthFirstLevels();
+        break;
       case EXIT:
-        MessageCli.END.printMessage();
+        MessageCli.END.printMessage(out);
 
         // Signal that the program should exit.
         return false;
       case HELP:
-        System.out.println(help());
+        out.println(help());
         break;
     }
 
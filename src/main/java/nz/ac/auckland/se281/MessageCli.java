@@ -1,5 +1,7 @@
 package nz.ac.auckland.se281;
 
+import java.io.PrintStream;
+
 /**
  * Templates of messages that can be printed to the CLI.
  *
@@ -15,13 +17,33 @@ public enum MessageCli {
   OPENED_FILE_SUCCESSFULLY("Successfully opened graph from file %s"),
   FILE_NOT_OPEN("Error: no valid file open"),
   FILE_NOT_FOUND("Error: file '%s' not found in `testcases` folder"),
+  FILE_NOT_LOADED("Error: file '%s' could not be loaded"),
   INFO("File name: %s"),
+  SAVED_SNAPSHOT("Successfully saved a snapshot of the graph to file %s"),
+  SNAPSHOT_NOT_SAVED("Error: could not save a snapshot to file '%s'"),
+  SNAPSHOT_NOT_OVERWRITTEN("Error: file '%s' is not a snapshot, so it was not overwritten"),
+  SAVED_CLOSURE("Successfully saved the transitive closure of the graph to file %s"),
+  FILE_WRITES_NOT_ALLOWED("Error: the \"%s\" command saves a file, which is not allowed here"),
 
   GRAPH_REFLEXIVE("The graph is %sreflexive"),
   GRAPH_SYMMETRIC("The graph is %ssymmetric"),
   GRAPH_ANTI_SYMMETRIC("The graph is %santisymmetric"),
   GRAPH_EQUIVALENCE("The graph is %san equivalence relation"),
   GRAPH_TRANSITIVE("The graph is %stransitive"),
+  GRAPH_REACHABLE("Vertex %s is %sreachable from vertex %s"),
+  COMPONENT("Component %s: %s"),
+  SOURCE_COMPONENT("Component %s: %s (source)"),
+
+  VERTEX_ADDED("Added vertex %s"),
+  VERTEX_ALREADY_EXISTS("Vertex %s is already in the graph"),
+  EDGE_ADDED("Added edge %s -> %s"),
+  EDGE_ALREADY_EXISTS("Edge %s -> %s is already in the graph"),
+  EDGE_REMOVED("Removed edge %s -> %s"),
+  EDGE_NOT_FOUND("Error: edge %s -> %s is not in the graph"),
+
+  COMMAND_FAILED("Error: command \"%s\" failed: %s"),
+
+  SEARCH_LEVEL("Level %s: %s (%s, %s microseconds)"),
 
   END("You closed the terminal. Goodbye.");
 
@@ -59,6 +81,17 @@ public enum MessageCli {
    * @param args The arguments to fill in the template.
    */
   public void printMessage(final String... args) {
-    System.out.println(getMessage(args));
+    printMessage(System.out, args);
+  }
+
+  /**
+   * Print the message to a stream after filling the template using {@link
+   * #getMessage(String...)}.
+   *
+   * @param out The stream to print to.
+   * @param args The arguments to fill in the template.
+   */
+  public void printMessage(final PrintStream out, final String... args) {
+    out.println(getMessage(args));
   }
 }
@@ -0,0 +1,302 @@
+package nz.ac.auckland.se281;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+import nz.ac.auckland.se281.datastructures.MappedFile;
+
+/**
+ * A single pass parser for the plain subset of DOT used by the test cases, such as {@code digraph G
+ * { a -> b -> c; d; }}. The file is read through a memory mapping and every edge goes straight into
+ * a {@link GraphBuilder}, without building a parse tree or maps of node and edge objects.
+ *
+ * <p>Attributes, subgraphs, undirected graphs, and quoted or HTML ids are not supported. The parser
+ * returns null when it finds them, so the caller can fall back to the full DOT parser.
+ */
+public final class StreamingDotParser {
+  private final MappedFile file;
+  private final GraphBuilder<String> builder = new GraphBuilder<>();
+  private byte[] token = new byte[64];
+  private long position;
+
+  /**
+   * Creates a parser of a mapped file.
+   *
+   * @param file the mapped DOT file.
+   */
+  private StreamingDotParser(final MappedFile file) {
+    this.file = file;
+  }
+
+  /**
+   * Parses a DOT file into a graph.
+   *
+   * @param file the DOT file.
+   * @return the graph, or null if the file uses syntax this parser does not support.
+   * @throws IOException If the file cannot be read.
+   */
+  public static Graph<String> parse(final Path file) throws IOException {
+    return new StreamingDotParser(MappedFile.map(file)).parseGraph();
+  }
+
+  /**
+   * Parses the whole file: an optional strict keyword, digraph, an optional name, then the body.
+   *
+   * @return the graph, or null if the file uses unsupported syntax.
+   */
+  private Graph<String> parseGraph() {
+    skipIgnored();
+    String keyword = readId();
+    if ("strict".equalsIgnoreCase(keyword)) {
+      skipIgnored();
+      keyword = readId();
+    }
+    if (!"digraph".equalsIgnoreCase(keyword)) {
+      return null; // undirected graphs and anything else go to the full parser
+    }
+
+    skipIgnored();
+    if (!isAt('{')) {
+      final String name = readId();
+      skipIgnored();
+      if (name == null || !isAt('{')) {
+        return null;
+      }
+    }
+    position++;
+
+    if (!parseStatements()) {
+      return null;
+    }
+
+    skipIgnored();
+    return position == file.size() ? builder.build() : null;
+  }
+
+  /**
+   * Parses node and edge statements up to and including the closing brace of the graph.
+   *
+   * @return true if every statement was supported, false otherwise.
+   */
+  private boolean parseStatements() {
+    while (true) {
+      skipIgnored();
+      if (position == file.size()) {
+        return false; // missing closing brace
+      }
+      if (isAt('}')) {
+        position++;
+        return true;
+      }
+      if (isAt(';') || isAt(',')) {
+        position++;
+        continue;
+      }
+
+      String source = readId();
+      if (source == null || isKeyword(source)) {
+        return false;
+      }
+      skipIgnored();
+
+      if (!isAtEdgeOperator()) {
+        builder.addVertex(source); // a node statement
+      }
+      while (isAtEdgeOperator()) { // an edge statement, possibly a chain of edges
+        position += 2;
+        skipIgnored();
+        final String destination = readId();
+        if (destination == null || isKeyword(destination)) {
+          return false;
+        }
+        builder.addEdge(source, destination);
+        source = destination;
+        skipIgnored();
+      }
+
+      if (!isAt(';') && !isAt(',') && !isAt('}') && !startsId()) {
+        return false; // attributes, ports, assignments, undirected edges
+      }
+    }
+  }
+
+  /**
+   * Reads an unquoted id, either a name made of letters, digits and underscores that does not start
+   * with a digit, or a number.
+   *
+   * @return the id, or null if there is no supported id at the current position.
+   */
+  private String readId() {
+    final long start = position;
+
+    if (startsName()) {
+      while (position < file.size() && isNameByte(file.get(position))) {
+        position++;
+      }
+    } else if (startsNumber()) {
+      if (isAt('-')) {
+        position++;
+      }
+      while (position < file.size() && isNumberByte(file.get(position))) {
+        position++;
+      }
+      if (position < file.size() && isNameByte(file.get(position))) {
+        return null; // such as 1abc, which is not a valid DOT id
+      }
+    } else {
+      return null; // quoted and HTML ids are left to the full parser
+    }
+
+    final int length = (int) (position - start);
+    if (token.length < length) {
+      token = Arrays.copyOf(token, Math.max(length, token.length * 2));
+    }
+    file.get(start, token, length);
+    return new String(token, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /** Skips whitespace and comments. */
+  private void skipIgnored() {
+    while (position < file.size()) {
+      final byte current = file.get(position);
+      if (current == ' '
+          || current == '\t'
+          || current == '\r'
+          || current == '\n'
+          || current == '\f') {
+        position++;
+      } else if (current == '#' || isAt("//")) {
+        skipLine();
+      } else if (isAt("/*")) {
+        position += 2;
+        while (position < file.size() && !isAt("*/")) {
+          position++;
+        }
+        position = Math.min(position + 2, file.size());
+      } else {
+        return;
+      }
+    }
+  }
+
+  /** Skips the rest of the current line. */
+  private void skipLine() {
+    while (position < file.size() && file.get(position) != '\n') {
+      position++;
+    }
+  }
+
+  /**
+   * Checks if the current position holds the given byte.
+   *
+   * @param expected the byte to check for.
+   * @return true if the byte is at the current position, false otherwise.
+   */
+  private boolean isAt(final char expected) {
+    return position < file.size() && file.get(position) == expected;
+  }
+
+  /**
+   * Checks if the current position starts with the given ASCII text.
+   *
+   * @param expected the text to check for.
+   * @return true if the text is at the current position, false otherwise.
+   */
+  private boolean isAt(final String expected) {
+    if (position + expected.length() > file.size()) {
+      return false;
+    }
+    for (int i = 0; i < expected.length(); i++) {
+      if (file.get(position + i) != expected.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if the current position holds a directed edge operator.
+   *
+   * @return true if the next bytes are "->", false otherwise.
+   */
+  private boolean isAtEdgeOperator() {
+    return isAt("->");
+  }
+
+  /**
+   * Checks if an id starts at the current position.
+   *
+   * @return true if a name or number starts here, false otherwise.
+   */
+  private boolean startsId() {
+    return startsName() || startsNumber();
+  }
+
+  /**
+   * Checks if a name starts at the current position.
+   *
+   * @return true if the current byte is a letter, underscore or non-ASCII byte.
+   */
+  private boolean startsName() {
+    if (position == file.size()) {
+      return false;
+    }
+    final byte current = file.get(position);
+    return isNameByte(current) && (current < '0' || current > '9');
+  }
+
+  /**
+   * Checks if a number starts at the current position, which may begin with a minus sign.
+   *
+   * @return true if a number starts here, false otherwise.
+   */
+  private boolean startsNumber() {
+    long next = position;
+    if (isAt('-')) {
+      next++;
+    }
+    return next < file.size() && isNumberByte(file.get(next));
+  }
+
+  /**
+   * Checks if a byte may be part of a name.
+   *
+   * @param current the byte.
+   * @return true for letters, digits, underscores and non-ASCII bytes.
+   */
+  private static boolean isNameByte(final byte current) {
+    return current < 0 // a byte of a multi-byte UTF-8 character
+        || (current >= 'a' && current <= 'z')
+        || (current >= 'A' && current <= 'Z')
+        || (current >= '0' && current <= '9')
+        || current == '_';
+  }
+
+  /**
+   * Checks if a byte may be part of a number.
+   *
+   * @param current the byte.
+   * @return true for digits and the decimal point.
+   */
+  private static boolean isNumberByte(final byte current) {
+    return (current >= '0' && current <= '9') || current == '.';
+  }
+
+  /**
+   * Checks if an id is a DOT keyword, which starts a statement this parser does not support.
+   *
+   * @param id the id.
+   * @return true if the id is a keyword, false otherwise.
+   */
+  private static boolean isKeyword(final String id) {
+    return id.equalsIgnoreCase("node")
+        || id.equalsIgnoreCase("edge")
+        || id.equalsIgnoreCase("graph")
+        || id.equalsIgnoreCase("digraph")
+        || id.equalsIgnoreCase("subgraph")
+        || id.equalsIgnoreCase("strict");
+  }
+}
@@ -0,0 +1,53 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * Where the offsets and targets of a graph's adjacency are kept. Every graph query works the same
+ * whichever storage is used, only the memory the adjacency lives in changes.
+ *
+ * <p>The default storage is read from the {@value #PROPERTY} system property, such as {@code
+ * -Dse281.adjacency.storage=mapped}, and is {@link #HEAP} when the property is not set.
+ */
+public enum AdjacencyStorage {
+  /** Plain int arrays on the Java heap, the fastest storage for graphs that fit under -Xmx. */
+  HEAP,
+
+  /** Direct byte buffers outside of the heap, limited by -XX:MaxDirectMemorySize. */
+  DIRECT,
+
+  /**
+   * Memory-mapped temporary files, paged in and out by the operating system, so graphs can be
+   * larger than both the heap and physical memory. Snapshots are mapped in place.
+   */
+  MAPPED;
+
+  /** The system property that selects the default storage. */
+  public static final String PROPERTY = "se281.adjacency.storage";
+
+  /**
+   * Gets the storage selected by the {@value #PROPERTY} system property.
+   *
+   * @return the default storage.
+   * @throws IllegalArgumentException If the property names an unknown storage.
+   */
+  public static AdjacencyStorage getDefault() {
+    String name = System.getProperty(PROPERTY);
+    return name == null ? HEAP : valueOf(name.trim().toUpperCase());
+  }
+
+  /**
+   * Allocates a zeroed store of ints in this storage.
+   *
+   * @param length the number of ints.
+   * @return the store.
+   */
+  IntStore allocate(int length) {
+    switch (this) {
+      case DIRECT:
+        return BufferIntStore.allocateDirect(length);
+      case MAPPED:
+        return BufferIntStore.allocateMapped(length);
+      default:
+        return new HeapIntStore(new int[length]);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The levels of a breadth first search from the roots of a graph, with how long each level took to
+ * find and the direction it was found in.
+ *
+ * @param <T> The type of each vertex.
+ */
+public final class BreadthFirstLevels<T> {
+  private final List<List<T>> levels;
+  private final long[] levelNanos;
+  private final boolean[] levelBottomUp;
+
+  /**
+   * Creates the levels of a search.
+   *
+   * @param levels the verticies of each level.
+   * @param levelNanos how long each level took to find, in nanoseconds.
+   * @param levelBottomUp if each level was found bottom-up.
+   */
+  public BreadthFirstLevels(List<List<T>> levels, long[] levelNanos, boolean[] levelBottomUp) {
+    this.levels = levels;
+    this.levelNanos = levelNanos;
+    this.levelBottomUp = levelBottomUp;
+  }
+
+  /**
+   * Gets the verticies of every level, level 0 holding the roots.
+   *
+   * @return an unmodifiable list of the levels, each in ascending order.
+   */
+  public List<List<T>> getLevels() {
+    return Collections.unmodifiableList(levels);
+  }
+
+  /**
+   * Gets how long a level took to find.
+   *
+   * @param level the level.
+   * @return the time in nanoseconds, 0 for the roots.
+   */
+  public long getLevelNanos(int level) {
+    return levelNanos[level];
+  }
+
+  /**
+   * Checks if a level was found bottom-up, by searching for parents of the unvisited verticies.
+   *
+   * @param level the level.
+   * @return true if the level was found bottom-up, false if top-down.
+   */
+  public boolean isBottomUp(int level) {
+    return levelBottomUp[level];
+  }
+}
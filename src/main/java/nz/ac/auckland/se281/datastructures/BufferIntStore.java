@@ -0,0 +1,183 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An int store kept outside of the Java heap, in direct or memory-mapped byte buffers, so it adds
+ * nothing to garbage collection. A single buffer holds at most 2 GB, so the ints are split into
+ * chunks of {@code 2^CHUNK_BITS} ints each.
+ */
+final class BufferIntStore implements IntStore {
+  static final int CHUNK_BITS = 28;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  private final IntBuffer[] chunks;
+  private final int length;
+  private final boolean isMapped;
+
+  /**
+   * Creates a store from its chunks.
+   *
+   * @param chunks the chunks, all but the last holding {@code 2^CHUNK_BITS} ints.
+   * @param length the number of ints in the store.
+   * @param isMapped if the chunks are backed by a file rather than direct memory.
+   */
+  private BufferIntStore(IntBuffer[] chunks, int length, boolean isMapped) {
+    this.chunks = chunks;
+    this.length = length;
+    this.isMapped = isMapped;
+  }
+
+  /**
+   * Allocates a zeroed store in direct memory. Direct memory is limited by {@code
+   * -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+   *
+   * @param length the number of ints.
+   * @return the store.
+   */
+  static BufferIntStore allocateDirect(int length) {
+    IntBuffer[] chunks = new IntBuffer[chunkCount(length)];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] =
+          ByteBuffer.allocateDirect(chunkLength(length, i) * Integer.BYTES)
+              .order(ByteOrder.nativeOrder())
+              .asIntBuffer();
+    }
+    return new BufferIntStore(chunks, length, false);
+  }
+
+  /**
+   * Allocates a zeroed store in a temporary file mapped into memory, which the operating system
+   * pages in and out as needed, so the store is not limited by the heap or direct memory. The file
+   * is deleted straight away, the mapping keeps its space until the store is garbage collected.
+   *
+   * @param length the number of ints.
+   * @return the store.
+   */
+  static BufferIntStore allocateMapped(int length) {
+    try {
+      Path file = Files.createTempFile("graph-adjacency", ".ints");
+      try (FileChannel channel =
+          FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        IntBuffer[] chunks = map(channel, FileChannel.MapMode.READ_WRITE, 0, length);
+        return new BufferIntStore(chunks, length, true);
+      } finally {
+        if (!file.toFile().delete()) {
+          file.toFile().deleteOnExit(); // some platforms cannot delete a mapped file
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Maps big-endian ints that are already in a file, such as the sections of a snapshot, without
+   * copying them. The store is read only.
+   *
+   * @param channel the open file.
+   * @param position the position of the first byte of the first int.
+   * @param length the number of ints.
+   * @return the store.
+   * @throws IOException If the file cannot be mapped.
+   */
+  static BufferIntStore mapReadOnly(FileChannel channel, long position, int length)
+      throws IOException {
+    return new BufferIntStore(
+        map(channel, FileChannel.MapMode.READ_ONLY, position, length), length, true);
+  }
+
+  /**
+   * Maps a run of ints in a file chunk by chunk. A read write mapping grows the file to fit.
+   *
+   * @param channel the open file.
+   * @param mode the mapping mode.
+   * @param position the position of the first byte of the first int.
+   * @param length the number of ints.
+   * @return the chunks.
+   * @throws IOException If the file cannot be mapped.
+   */
+  private static IntBuffer[] map(
+      FileChannel channel, FileChannel.MapMode mode, long position, int length)
+      throws IOException {
+    IntBuffer[] chunks = new IntBuffer[chunkCount(length)];
+    for (int i = 0; i < chunks.length; i++) {
+      long start = position + (long) i * CHUNK_SIZE * Integer.BYTES;
+      long size = (long) chunkLength(length, i) * Integer.BYTES;
+      ByteBuffer bytes = channel.map(mode, start, size);
+      if (mode != FileChannel.MapMode.READ_ONLY) {
+        bytes.order(ByteOrder.nativeOrder()); // a fresh temporary file, so any order will do
+      }
+      chunks[i] = bytes.asIntBuffer();
+    }
+    return chunks;
+  }
+
+  /**
+   * Counts the chunks needed for a number of ints.
+   *
+   * @param length the number of ints.
+   * @return the chunk count.
+   */
+  private static int chunkCount(int length) {
+    return (int) (((long) length + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+  }
+
+  /**
+   * Gets the number of ints in a chunk.
+   *
+   * @param length the number of ints in the store.
+   * @param chunk the index of the chunk.
+   * @return the number of ints in the chunk.
+   */
+  private static int chunkLength(int length, int chunk) {
+    return (int) Math.min(CHUNK_SIZE, (long) length - ((long) chunk << CHUNK_BITS));
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public int get(int index) {
+    return chunks[index >>> CHUNK_BITS].get(index & CHUNK_MASK);
+  }
+
+  @Override
+  public void set(int index, int value) {
+    chunks[index >>> CHUNK_BITS].put(index & CHUNK_MASK, value);
+  }
+
+  @Override
+  public void sort(int from, int to) {
+    // rows are short, so each one is sorted in a small heap array and written back
+    int[] row = new int[to - from];
+    for (int i = 0; i < row.length; i++) {
+      row[i] = get(from + i);
+    }
+    Arrays.sort(row);
+    for (int i = 0; i < row.length; i++) {
+      set(from + i, row[i]);
+    }
+  }
+
+  @Override
+  public IntStore copyOf(int newLength) {
+    BufferIntStore copy = isMapped ? allocateMapped(newLength) : allocateDirect(newLength);
+    for (int i = 0; i < Math.min(length, newLength); i++) {
+      copy.set(i, get(i));
+    }
+    return copy;
+  }
+}
@@ -0,0 +1,300 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An immutable compressed sparse row (CSR) adjacency structure over dense integer vertex ids. The
+ * destinations of vertex {@code v} are stored in {@code targets[offsets[v]]} up to (but not
+ * including) {@code targets[offsets[v + 1]]}, sorted in ascending order with no duplicates.
+ *
+ * <p>The offsets and targets are kept in an {@link AdjacencyStorage}, on or off the Java heap.
+ */
+public final class CompressedSparseRow {
+  private final AdjacencyStorage storage;
+  private final IntStore offsets;
+  private final IntStore targets;
+
+  /**
+   * Creates a CSR structure from already sorted and de-duplicated rows on the heap.
+   *
+   * @param offsets the row offsets, of length vertex count + 1.
+   * @param targets the destination vertex of every edge, grouped by source vertex.
+   */
+  CompressedSparseRow(int[] offsets, int[] targets) {
+    this(AdjacencyStorage.HEAP, new HeapIntStore(offsets), new HeapIntStore(targets));
+  }
+
+  /**
+   * Creates a CSR structure from already sorted and de-duplicated rows.
+   *
+   * @param storage where the offsets and targets are kept.
+   * @param offsets the row offsets, of length vertex count + 1.
+   * @param targets the destination vertex of every edge, grouped by source vertex.
+   */
+  CompressedSparseRow(AdjacencyStorage storage, IntStore offsets, IntStore targets) {
+    this.storage = storage;
+    this.offsets = offsets;
+    this.targets = targets;
+  }
+
+  /**
+   * Builds a CSR structure in the default storage from parallel arrays of edge endpoints. Duplicate
+   * edges are removed.
+   *
+   * @param vertexCount the number of verticies, every endpoint must be less than this.
+   * @param sources the source vertex of each edge.
+   * @param destinations the destination vertex of each edge.
+   * @param edgeCount the number of edges stored in the endpoint arrays.
+   * @return the CSR structure.
+   */
+  public static CompressedSparseRow fromEdges(
+      int vertexCount, int[] sources, int[] destinations, int edgeCount) {
+    return fromEdges(vertexCount, sources, destinations, edgeCount, AdjacencyStorage.getDefault());
+  }
+
+  /**
+   * Builds a CSR structure from parallel arrays of edge endpoints. Duplicate edges are removed.
+   *
+   * @param vertexCount the number of verticies, every endpoint must be less than this.
+   * @param sources the source vertex of each edge.
+   * @param destinations the destination vertex of each edge.
+   * @param edgeCount the number of edges stored in the endpoint arrays.
+   * @param storage where to keep the offsets and targets.
+   * @return the CSR structure.
+   */
+  public static CompressedSparseRow fromEdges(
+      int vertexCount,
+      int[] sources,
+      int[] destinations,
+      int edgeCount,
+      AdjacencyStorage storage) {
+    int[] offsets = new int[vertexCount + 1];
+
+    // count the out degree of every vertex, then turn the counts into row offsets
+    for (int i = 0; i < edgeCount; i++) {
+      offsets[sources[i] + 1]++;
+    }
+    for (int v = 0; v < vertexCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+
+    IntStore targets = storage.allocate(edgeCount);
+    int[] cursor = Arrays.copyOf(offsets, vertexCount);
+    for (int i = 0; i < edgeCount; i++) {
+      targets.set(cursor[sources[i]]++, destinations[i]);
+    }
+
+    // sort every row and squeeze out duplicate edges in place
+    int write = 0;
+    int rowStart = 0;
+    for (int v = 0; v < vertexCount; v++) {
+      int rowEnd = offsets[v + 1];
+      targets.sort(rowStart, rowEnd);
+      offsets[v] = write;
+      for (int i = rowStart; i < rowEnd; i++) {
+        if (i == rowStart || targets.get(i) != targets.get(i - 1)) {
+          targets.set(write++, targets.get(i));
+        }
+      }
+      rowStart = rowEnd;
+    }
+    offsets[vertexCount] = write;
+
+    return new CompressedSparseRow(
+        storage,
+        toStore(offsets, storage),
+        write == edgeCount ? targets : targets.copyOf(write));
+  }
+
+  /**
+   * Moves a heap array into a storage.
+   *
+   * @param values the array.
+   * @param storage the storage to move it into.
+   * @return the array itself for heap storage, otherwise a copy in the storage.
+   */
+  private static IntStore toStore(int[] values, AdjacencyStorage storage) {
+    if (storage == AdjacencyStorage.HEAP) {
+      return new HeapIntStore(values);
+    }
+    IntStore store = storage.allocate(values.length);
+    for (int i = 0; i < values.length; i++) {
+      store.set(i, values[i]);
+    }
+    return store;
+  }
+
+  /**
+   * Gets where the offsets and targets of the structure are kept.
+   *
+   * @return the storage.
+   */
+  public AdjacencyStorage getStorage() {
+    return storage;
+  }
+
+  /**
+   * Gets the number of verticies in the structure.
+   *
+   * @return the vertex count.
+   */
+  public int getVertexCount() {
+    return offsets.length() - 1;
+  }
+
+  /**
+   * Gets the number of edges in the structure.
+   *
+   * @return the edge count.
+   */
+  public int getEdgeCount() {
+    return targets.length();
+  }
+
+  /**
+   * Gets the index of the first edge leaving a vertex.
+   *
+   * @param vertex the source vertex.
+   * @return the inclusive start of the vertex's row.
+   */
+  public int getRowStart(int vertex) {
+    return offsets.get(vertex);
+  }
+
+  /**
+   * Gets the index one past the last edge leaving a vertex.
+   *
+   * @param vertex the source vertex.
+   * @return the exclusive end of the vertex's row.
+   */
+  public int getRowEnd(int vertex) {
+    return offsets.get(vertex + 1);
+  }
+
+  /**
+   * Gets the number of edges leaving a vertex.
+   *
+   * @param vertex the source vertex.
+   * @return the out degree.
+   */
+  public int getOutDegree(int vertex) {
+    return offsets.get(vertex + 1) - offsets.get(vertex);
+  }
+
+  /**
+   * Gets the destination of the edge at the given index.
+   *
+   * @param index the edge index, between a row start and row end.
+   * @return the destination vertex.
+   */
+  public int getTarget(int index) {
+    return targets.get(index);
+  }
+
+  /**
+   * Counts the edges entering every vertex, in a single pass over the targets.
+   *
+   * @return the in degree of every vertex, indexed by vertex id.
+   */
+  public int[] getInDegrees() {
+    int[] inDegrees = new int[getVertexCount()];
+    for (int i = 0; i < targets.length(); i++) {
+      inDegrees[targets.get(i)]++;
+    }
+    return inDegrees;
+  }
+
+  /**
+   * Builds the transpose of this structure, which has every edge reversed, in the same storage. The
+   * rows of the transpose are filled in ascending order of source, so they come out sorted without
+   * sorting.
+   *
+   * @return the CSR structure of the reversed edges.
+   */
+  public CompressedSparseRow transpose() {
+    int vertexCount = getVertexCount();
+    int[] reverseOffsets = getInDegrees();
+    int[] cursor = new int[vertexCount];
+
+    // turn the in degrees into row offsets, remembering where every row starts
+    int offset = 0;
+    for (int v = 0; v < vertexCount; v++) {
+      cursor[v] = offset;
+      offset += reverseOffsets[v];
+    }
+    reverseOffsets = Arrays.copyOf(cursor, vertexCount + 1);
+    reverseOffsets[vertexCount] = offset;
+
+    IntStore reverseTargets = storage.allocate(targets.length());
+    for (int source = 0; source < vertexCount; source++) {
+      for (int i = offsets.get(source); i < offsets.get(source + 1); i++) {
+        reverseTargets.set(cursor[targets.get(i)]++, source);
+      }
+    }
+
+    return new CompressedSparseRow(storage, toStore(reverseOffsets, storage), reverseTargets);
+  }
+
+  /**
+   * Checks if another structure holds exactly the same edges as this one.
+   *
+   * @param other the structure to compare to.
+   * @return true if both structures have the same rows, false otherwise.
+   */
+  public boolean hasSameEdges(CompressedSparseRow other) {
+    return hasSameValues(offsets, other.offsets) && hasSameValues(targets, other.targets);
+  }
+
+  /**
+   * Checks if two stores hold the same ints.
+   *
+   * @param a the first store.
+   * @param b the second store.
+   * @return true if the stores have the same length and ints, false otherwise.
+   */
+  private static boolean hasSameValues(IntStore a, IntStore b) {
+    if (a.length() != b.length()) {
+      return false;
+    }
+    for (int i = 0; i < a.length(); i++) {
+      if (a.get(i) != b.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if there is an edge between two verticies, using a binary search of the source's row.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   * @return true if the edge exists, false otherwise.
+   */
+  public boolean hasEdge(int source, int destination) {
+    int low = offsets.get(source);
+    int high = offsets.get(source + 1) - 1;
+
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int target = targets.get(middle);
+      if (target < destination) {
+        low = middle + 1;
+      } else if (target > destination) {
+        high = middle - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets the number of bytes taken by the offsets and targets, wherever they are kept.
+   *
+   * @return the size in bytes.
+   */
+  public long getMemoryUsage() {
+    return (long) (offsets.length() + targets.length()) * Integer.BYTES;
+  }
+}
@@ -0,0 +1,200 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A breadth first search that finds the levels of a graph from a set of roots, switching between
+ * expanding the frontier top-down and searching for parents bottom-up.
+ *
+ * <p>Top-down, every edge leaving the frontier is checked. Bottom-up, every unvisited vertex checks
+ * its incoming edges and stops at the first one from the frontier, which touches far fewer edges
+ * once the frontier holds a large part of the graph, as in the middle levels of a low diameter
+ * graph. The search goes bottom-up when the frontier has more than 1/{@value #ALPHA} of the edges
+ * of the unvisited verticies, and back top-down when the frontier shrinks below 1/{@value #BETA}
+ * of the verticies.
+ */
+public final class DirectionOptimizingBreadthFirstSearch {
+  /** How much larger the unvisited edges must be than the frontier edges to stay top-down. */
+  public static final int ALPHA = 14;
+
+  /** How much larger the graph must be than the frontier to go back top-down. */
+  public static final int BETA = 24;
+
+  private final CompressedSparseRow graph;
+  private final CompressedSparseRow reverse;
+  private final boolean[] visited;
+
+  // scratch reused by every level, so a deep graph does not allocate a buffer per level
+  private final int[] next;
+  private final boolean[] inFrontier;
+
+  private final List<int[]> levels = new ArrayList<>();
+  private final List<Long> levelNanos = new ArrayList<>();
+  private final List<Boolean> levelBottomUp = new ArrayList<>();
+
+  /**
+   * Creates a search of a graph.
+   *
+   * @param graph the graph to search.
+   * @param reverse the graph with every edge reversed, giving the incoming edges of each vertex.
+   */
+  public DirectionOptimizingBreadthFirstSearch(
+      CompressedSparseRow graph, CompressedSparseRow reverse) {
+    this.graph = graph;
+    this.reverse = reverse;
+    this.visited = new boolean[graph.getVertexCount()];
+    this.next = new int[graph.getVertexCount()];
+    this.inFrontier = new boolean[graph.getVertexCount()];
+  }
+
+  /**
+   * Finds the levels of the graph, where level 0 holds the roots and level n holds the verticies n
+   * edges away from the nearest root.
+   *
+   * @param roots the ids of the root verticies.
+   */
+  public void search(int[] roots) {
+    int[] frontier = Arrays.stream(roots).distinct().sorted().toArray();
+    long unvisitedEdges = graph.getEdgeCount();
+    for (int root : frontier) {
+      visited[root] = true;
+      unvisitedEdges -= graph.getOutDegree(root);
+    }
+    addLevel(frontier, 0, false);
+
+    boolean isBottomUp = false;
+    while (frontier.length > 0) {
+      long frontierEdges = 0;
+      for (int vertex : frontier) {
+        frontierEdges += graph.getOutDegree(vertex);
+      }
+
+      if (!isBottomUp && frontierEdges * ALPHA > unvisitedEdges) {
+        isBottomUp = true;
+      } else if (isBottomUp && (long) frontier.length * BETA < graph.getVertexCount()) {
+        isBottomUp = false;
+      }
+
+      long start = System.nanoTime();
+      frontier = isBottomUp ? stepBottomUp(frontier) : stepTopDown(frontier);
+      long elapsed = System.nanoTime() - start;
+
+      for (int vertex : frontier) {
+        unvisitedEdges -= graph.getOutDegree(vertex);
+      }
+      if (frontier.length > 0) {
+        addLevel(frontier, elapsed, isBottomUp);
+      }
+    }
+  }
+
+  /**
+   * Finds the next level by checking every edge leaving the frontier.
+   *
+   * @param frontier the verticies of the current level.
+   * @return the verticies of the next level, in ascending order.
+   */
+  private int[] stepTopDown(int[] frontier) {
+    int size = 0;
+    for (int source : frontier) {
+      for (int i = graph.getRowStart(source); i < graph.getRowEnd(source); i++) {
+        int destination = graph.getTarget(i);
+        if (!visited[destination]) {
+          visited[destination] = true;
+          next[size++] = destination;
+        }
+      }
+    }
+    Arrays.sort(next, 0, size);
+    return Arrays.copyOf(next, size);
+  }
+
+  /**
+   * Finds the next level by checking the incoming edges of every unvisited vertex for a parent in
+   * the frontier.
+   *
+   * @param frontier the verticies of the current level.
+   * @return the verticies of the next level, in ascending order.
+   */
+  private int[] stepBottomUp(int[] frontier) {
+    for (int vertex : frontier) {
+      inFrontier[vertex] = true;
+    }
+
+    int size = 0;
+    for (int vertex = 0; vertex < graph.getVertexCount(); vertex++) {
+      if (visited[vertex]) {
+        continue;
+      }
+      for (int i = reverse.getRowStart(vertex); i < reverse.getRowEnd(vertex); i++) {
+        if (inFrontier[reverse.getTarget(i)]) { // stop at the first parent found
+          next[size++] = vertex;
+          break;
+        }
+      }
+    }
+
+    // mark the level after the scan, so verticies of this level are not taken as parents
+    for (int i = 0; i < size; i++) {
+      visited[next[i]] = true;
+    }
+    for (int vertex : frontier) {
+      inFrontier[vertex] = false;
+    }
+    return Arrays.copyOf(next, size);
+  }
+
+  /**
+   * Records a level of the search.
+   *
+   * @param level the verticies of the level.
+   * @param nanos how long the level took to find, in nanoseconds.
+   * @param isBottomUp if the level was found bottom-up.
+   */
+  private void addLevel(int[] level, long nanos, boolean isBottomUp) {
+    levels.add(level);
+    levelNanos.add(nanos);
+    levelBottomUp.add(isBottomUp);
+  }
+
+  /**
+   * Gets the number of levels found.
+   *
+   * @return the number of levels.
+   */
+  public int getLevelCount() {
+    return levels.size();
+  }
+
+  /**
+   * Gets the verticies of a level, in ascending order.
+   *
+   * @param level the level, 0 being the roots.
+   * @return the ids of the verticies in the level.
+   */
+  public int[] getLevel(int level) {
+    return levels.get(level);
+  }
+
+  /**
+   * Gets how long a level took to find.
+   *
+   * @param level the level, 0 being the roots.
+   * @return the time in nanoseconds.
+   */
+  public long getLevelNanos(int level) {
+    return levelNanos.get(level);
+  }
+
+  /**
+   * Checks if a level was found bottom-up.
+   *
+   * @param level the level, 0 being the roots.
+   * @return true if the level was found bottom-up, false if top-down.
+   */
+  public boolean isBottomUp(int level) {
+    return levelBottomUp.get(level);
+  }
+}
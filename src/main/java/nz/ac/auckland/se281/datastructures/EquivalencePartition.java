@@ -0,0 +1,125 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * The partition of the verticies of an equivalence relation into its equivalence classes. Every
+ * vertex has a class id, and the members of each class are stored together in ascending order, so
+ * looking up a class takes time proportional to its size and checking if two verticies are in the
+ * same class takes constant time.
+ */
+public final class EquivalencePartition {
+  private final int[] classIds;
+  private final int[] classOffsets;
+  private final int[] members;
+
+  /**
+   * Creates the partition of a graph that is an equivalence relation. In an equivalence relation
+   * the sorted row of a vertex is exactly its equivalence class, so the first vertex of the row is
+   * the smallest member of the class.
+   *
+   * @param equivalence the adjacency of a graph that is an equivalence relation.
+   */
+  public EquivalencePartition(CompressedSparseRow equivalence) {
+    int vertexCount = equivalence.getVertexCount();
+    this.classIds = new int[vertexCount];
+
+    int classCount = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int representative = equivalence.getTarget(equivalence.getRowStart(vertex));
+      // the representative is never after the vertex, so its class has already been numbered
+      classIds[vertex] = representative == vertex ? classCount++ : classIds[representative];
+    }
+
+    this.classOffsets = new int[classCount + 1];
+    this.members = new int[vertexCount];
+    int[] cursor = new int[classCount];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      classOffsets[classIds[vertex] + 1]++;
+    }
+    for (int classId = 0; classId < classCount; classId++) {
+      classOffsets[classId + 1] += classOffsets[classId];
+      cursor[classId] = classOffsets[classId];
+    }
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      members[cursor[classIds[vertex]]++] = vertex; // added in ascending order of vertex
+    }
+  }
+
+  /**
+   * Gets the number of equivalence classes.
+   *
+   * @return the number of classes.
+   */
+  public int getClassCount() {
+    return classOffsets.length - 1;
+  }
+
+  /**
+   * Gets the id of the equivalence class of a vertex.
+   *
+   * @param vertex the vertex.
+   * @return the class id.
+   */
+  public int getClassOf(int vertex) {
+    return classIds[vertex];
+  }
+
+  /**
+   * Checks if two verticies are in the same equivalence class.
+   *
+   * @param vertexA the first vertex.
+   * @param vertexB the second vertex.
+   * @return true if the verticies are equivalent, false otherwise.
+   */
+  public boolean isSameClass(int vertexA, int vertexB) {
+    return classIds[vertexA] == classIds[vertexB];
+  }
+
+  /**
+   * Gets the smallest vertex of an equivalence class.
+   *
+   * @param classId the class id.
+   * @return the representative vertex of the class.
+   */
+  public int getRepresentative(int classId) {
+    return members[classOffsets[classId]];
+  }
+
+  /**
+   * Gets the index of the first member of an equivalence class.
+   *
+   * @param classId the class id.
+   * @return the inclusive start of the class's members.
+   */
+  public int getClassStart(int classId) {
+    return classOffsets[classId];
+  }
+
+  /**
+   * Gets the index one past the last member of an equivalence class.
+   *
+   * @param classId the class id.
+   * @return the exclusive end of the class's members.
+   */
+  public int getClassEnd(int classId) {
+    return classOffsets[classId + 1];
+  }
+
+  /**
+   * Gets the member at the given index.
+   *
+   * @param index the member index, between a class start and class end.
+   * @return the member vertex.
+   */
+  public int getMember(int index) {
+    return members[index];
+  }
+
+  /**
+   * Gets the number of bytes taken by the class ids, offsets and members.
+   *
+   * @return the size in bytes.
+   */
+  public long getMemoryUsage() {
+    return (long) (classIds.length + classOffsets.length + members.length) * Integer.BYTES;
+  }
+}
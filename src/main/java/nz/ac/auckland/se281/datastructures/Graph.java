@@ -1,14 +1,14 @@
 package nz.ac.auckland.se281.datastructures;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * A graph that is composed of a set of verticies and edges.
@@ -18,74 +18,155 @@ import java.util.TreeMap;
  * @param <T> The type of each vertex, that have a total ordering.
  */
 public class Graph<T extends Comparable<T>> {
-  private Set<T> verticies;
-  private Set<Edge<T>> edges;
-  private HashMap<Integer, ArrayList<Integer>> adjacencyList;
-  private TreeMap<Integer, ArrayList<Integer>> sortedAdjacencyList;
+  private final VertexDictionary<T> dictionary;
+  private final CompressedSparseRow adjacency;
+
+  // analyses of the graph, each computed at most once and then served from the cache
+  private final Memo<CompressedSparseRow> reverseAdjacency = new Memo<>(this::computeReverse);
+  private final Memo<Boolean> reflexive = new Memo<>(this::computeReflexive);
+  private final Memo<Boolean> symmetric = new Memo<>(this::computeSymmetric);
+  private final Memo<Boolean> transitive = new Memo<>(this::computeTransitive);
+  private final Memo<Boolean> antiSymmetric = new Memo<>(this::computeAntiSymmetric);
+  private final Memo<EquivalencePartition> partition = new Memo<>(this::computePartition);
+  private final Memo<int[]> roots = new Memo<>(this::computeRoots);
+  private final Memo<StronglyConnectedComponents> components = new Memo<>(this::computeComponents);
+  private final Memo<ReachabilityIndex> reachability = new Memo<>(this::computeReachability);
 
   /**
    * Creates a graph with sorted set of verticies and edges.
    *
+   * <p>The graph has every vertex of the set of verticies, including any that no edge touches, and
+   * every vertex that only appears in an edge, as a source or as a destination. An isolated vertex
+   * is therefore a root of the graph, and the graph is only reflexive if that vertex has a self
+   * loop as well.
+   *
    * @param verticies the set of verticies.
    * @param edges the set of edges.
    */
   public Graph(Set<T> verticies, Set<Edge<T>> edges) {
-    this.adjacencyList = getAdjacencyList(edges);
-    this.sortedAdjacencyList = sortedAdjacencyList();
-    this.verticies = sortVertices();
-    for (T vertex : this.verticies) {
-      System.out.println(vertex);
+    List<T> allVerticies = new ArrayList<>(verticies);
+    for (Edge<T> edge : edges) {
+      // verticies that only appear in an edge are still part of the graph
+      allVerticies.add(edge.getSource());
+      allVerticies.add(edge.getDestination());
     }
-    this.edges = sortEdges();
-    for (Edge<T> edge : this.edges) {
-      System.out.println(edge.getSource() + " --> " + edge.getDestination());
+    this.dictionary = new VertexDictionary<>(allVerticies);
+
+    int[] sources = new int[edges.size()];
+    int[] destinations = new int[edges.size()];
+    int index = 0;
+    for (Edge<T> edge : edges) {
+      sources[index] = dictionary.getId(edge.getSource());
+      destinations[index] = dictionary.getId(edge.getDestination());
+      index++;
     }
+    this.adjacency = CompressedSparseRow.fromEdges(dictionary.size(), sources, destinations, index);
   }
 
   /**
-   * Creates an adjacency list that represents the graph, with key being the source vertex and value
-   * being the list of destination verticies.
+   * Creates a graph from a vertex dictionary and the adjacency of the ids it gives.
    *
-   * @param edges the set of edges.
-   * @return the adjacency list.
+   * @param dictionary the dictionary of verticies.
+   * @param adjacency the edges between the ids of the verticies.
    */
-  public HashMap<Integer, ArrayList<Integer>> getAdjacencyList(Set<Edge<T>> edges) {
-    HashMap<Integer, ArrayList<Integer>> adjacencyList = new HashMap<>();
-    Set<Edge<Integer>> edgesInteger = new HashSet<>();
+  Graph(VertexDictionary<T> dictionary, CompressedSparseRow adjacency) {
+    this.dictionary = dictionary;
+    this.adjacency = adjacency;
+  }
 
-    for (Edge<T> edge : edges) {
-      edgesInteger.add(
-          new Edge<Integer>(
-              Integer.parseInt(edge.getSource().toString()),
-              Integer.parseInt(edge.getDestination().toString()))); // convert T to Integer
-    }
+  /**
+   * Gets the dictionary that gives every vertex its id.
+   *
+   * @return the vertex dictionary.
+   */
+  VertexDictionary<T> getDictionary() {
+    return dictionary;
+  }
 
-    for (Edge<Integer> edge : edgesInteger) {
-      // if the source vertex is already in the adjacency list,
-      // add the destination vertex to the list
-      if (adjacencyList.containsKey(edge.getSource())) {
-        adjacencyList.get(edge.getSource()).add(edge.getDestination());
-      } else {
-        ArrayList<Integer> list = new ArrayList<>();
-        list.add(edge.getDestination());
-        adjacencyList.put(edge.getSource(), list);
+  /**
+   * Gets the edges between the ids of the verticies.
+   *
+   * @return the adjacency.
+   */
+  CompressedSparseRow getAdjacency() {
+    return adjacency;
+  }
+
+  /**
+   * Fills in the relation properties of the graph that are already known, such as those saved in a
+   * snapshot, so they are not computed again.
+   *
+   * @param isReflexive if the graph is reflexive.
+   * @param isSymmetric if the graph is symmetric.
+   * @param isTransitive if the graph is transitive.
+   * @param isAntiSymmetric if the graph is anti-symmetric.
+   */
+  void presetProperties(
+      boolean isReflexive, boolean isSymmetric, boolean isTransitive, boolean isAntiSymmetric) {
+    reflexive.preset(isReflexive);
+    symmetric.preset(isSymmetric);
+    transitive.preset(isTransitive);
+    antiSymmetric.preset(isAntiSymmetric);
+  }
+
+  /**
+   * Writes every vertex and then every edge of the graph in ascending order, one per line. Nothing
+   * is flushed, so a buffered writer turns this into a single write.
+   *
+   * @param out where to write the verticies and edges.
+   * @throws IOException If the verticies or edges cannot be written.
+   */
+  public void writeVerticiesEdges(Appendable out) throws IOException {
+    String lineSeparator = System.lineSeparator();
+
+    for (T vertex : dictionary.getVerticies()) {
+      out.append(String.valueOf(vertex)).append(lineSeparator);
+    }
+    for (int source = 0; source < adjacency.getVertexCount(); source++) {
+      for (int i = adjacency.getRowStart(source); i < adjacency.getRowEnd(source); i++) {
+        out.append(String.valueOf(dictionary.getVertex(source)))
+            .append(" --> ")
+            .append(String.valueOf(dictionary.getVertex(adjacency.getTarget(i))))
+            .append(lineSeparator);
       }
     }
+  }
 
-    return adjacencyList;
+  /**
+   * Checks if the graph has no verticies and no edges.
+   *
+   * @return true if the graph is empty, false otherwise.
+   */
+  private boolean isEmpty() {
+    return adjacency.getVertexCount() == 0;
   }
 
   /**
-   * Sorts the adjacency list by key, in ascending order.
+   * Creates an adjacency list that represents the given edges, with key being the id of the source
+   * vertex and value being the list of ids of the destination verticies.
+   *
+   * <p>The ids are the dense ids of the graph's vertex dictionary, the position of each vertex in
+   * {@link #sortVertices()}, and not the verticies themselves: in a graph of the verticies 1, 5 and
+   * 7 they are 0, 1 and 2. Edges with a vertex that is not in the graph are left out.
    *
-   * @return the sorted adjacency list.
+   * @param edges the set of edges.
+   * @return the adjacency list.
    */
-  TreeMap<Integer, ArrayList<Integer>> sortedAdjacencyList() {
-    TreeMap<Integer, ArrayList<Integer>> sortedAdjacencyList = new TreeMap<>();
+  public HashMap<Integer, ArrayList<Integer>> getAdjacencyList(Set<Edge<T>> edges) {
+    HashMap<Integer, ArrayList<Integer>> adjacencyList = new HashMap<>();
 
-    sortedAdjacencyList.putAll(adjacencyList); // sort the adjacency list by key
+    for (Edge<T> edge : edges) {
+      int source = dictionary.getId(edge.getSource());
+      int destination = dictionary.getId(edge.getDestination());
+      if (source < 0 || destination < 0) {
+        continue; // the edge is not part of this graph
+      }
+      // if the source vertex is already in the adjacency list,
+      // add the destination vertex to the list
+      adjacencyList.computeIfAbsent(source, key -> new ArrayList<>()).add(destination);
+    }
 
-    return sortedAdjacencyList;
+    return adjacencyList;
   }
 
   /**
@@ -94,14 +175,7 @@ public class Graph<T extends Comparable<T>> {
    * @return the sorted set of verticies.
    */
   public Set<T> sortVertices() {
-    Set<T> sortedVerticiesSet = new LinkedHashSet<>();
-    Set<Integer> sortedKeySet = sortedAdjacencyList.keySet();
-
-    for (Integer vertex : sortedKeySet) {
-      sortedVerticiesSet.add((T) vertex); // convert Integer to T
-    }
-
-    return sortedVerticiesSet;
+    return new LinkedHashSet<>(dictionary.getVerticies());
   }
 
   /**
@@ -111,20 +185,15 @@ public class Graph<T extends Comparable<T>> {
    */
   public Set<Edge<T>> sortEdges() {
     Set<Edge<T>> sortedEdges = new LinkedHashSet<>();
-    List<Edge<Integer>> sortedEdgesList = new ArrayList<>();
 
-    for (Integer vertex : sortedAdjacencyList.keySet()) {
-      // sort the list of destination verticies for each source vertex in ascending order
-      Collections.sort(sortedAdjacencyList.get(vertex));
-      for (Integer destination : sortedAdjacencyList.get(vertex)) {
-        sortedEdgesList.add(new Edge<Integer>(vertex, destination));
+    // rows are already sorted, so walking them in vertex order gives the sorted edges
+    for (int source = 0; source < adjacency.getVertexCount(); source++) {
+      for (int i = adjacency.getRowStart(source); i < adjacency.getRowEnd(source); i++) {
+        sortedEdges.add(
+            new Edge<>(dictionary.getVertex(source), dictionary.getVertex(adjacency.getTarget(i))));
       }
     }
 
-    for (Edge<Integer> edge : sortedEdgesList) {
-      sortedEdges.add((Edge<T>) edge); // convert Integer to T
-    }
-
     return sortedEdges;
   }
 
@@ -134,33 +203,48 @@ public class Graph<T extends Comparable<T>> {
    * @return The set of root verticies.
    */
   public Set<T> getRoots() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    Set<T> rootSet = new LinkedHashSet<>();
+    for (int root : findRoots()) {
+      rootSet.add(dictionary.getVertex(root));
+    }
+    return rootSet;
+  }
+
+  /**
+   * Finds the ids of the root verticies in ascending order, in a single pass over the verticies.
+   *
+   * @return the ids of the root verticies.
+   */
+  private int[] findRoots() {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     } // if the graph is empty, operation is not supported
 
-    Set<T> roots = new LinkedHashSet<>(verticies);
-
-    for (T vertex : verticies) {
-      for (Edge<T> edge : edges) {
-        // check if every vertex is a destination for an edge, if so in-degree is not 0
-        if (vertex.compareTo(edge.getDestination()) == 0) {
-          roots.remove(vertex); // if in degree is not zero, remove it from the set of roots
-        }
-      }
-    }
+    return roots.get();
+  }
 
-    // if the graph is an equivalence relation, add the first vertex of each equivalence class to
-    // the set of roots
-    if (isEquivalence()) {
-      for (T vertex : verticies) {
-        Set<T> equivalenceClass = getEquivalenceClass(vertex);
-        if (!roots.contains(equivalenceClass.iterator().next())) {
-          roots.add(equivalenceClass.iterator().next());
-        }
+  /**
+   * Computes the ids of the root verticies.
+   *
+   * @return the ids of the root verticies.
+   */
+  private int[] computeRoots() {
+    int[] inDegrees = adjacency.getInDegrees();
+    EquivalencePartition partition = this.partition.get();
+    int[] rootIds = new int[adjacency.getVertexCount()];
+    int rootCount = 0;
+
+    for (int vertex = 0; vertex < adjacency.getVertexCount(); vertex++) {
+      if (inDegrees[vertex] == 0) { // a vertex with an in-degree of 0 is a root
+        rootIds[rootCount++] = vertex;
+      } else if (partition != null
+          && partition.getRepresentative(partition.getClassOf(vertex)) == vertex) {
+        // if the graph is an equivalence relation, the first vertex of each class is a root
+        rootIds[rootCount++] = vertex;
       }
     }
 
-    return roots;
+    return Arrays.copyOf(rootIds, rootCount);
   }
 
   /**
@@ -169,17 +253,25 @@ public class Graph<T extends Comparable<T>> {
    * @return true or false.
    */
   public boolean isReflexive() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
-    if (verticies.size() > 0 && edges.size() == 0) {
+
+    return reflexive.get();
+  }
+
+  /**
+   * Computes if the graph is reflexive.
+   *
+   * @return true or false.
+   */
+  private boolean computeReflexive() {
+    if (adjacency.getEdgeCount() == 0) {
       return false;
-    } else if (verticies.size() == 0) {
-      return true;
     }
 
-    for (T vertex : verticies) {
-      if (!edges.contains(new Edge<>(vertex, vertex))) { // check if vertex has self loop
+    for (int vertex = 0; vertex < adjacency.getVertexCount(); vertex++) {
+      if (!adjacency.hasEdge(vertex, vertex)) { // check if vertex has self loop
         return false;
       }
     }
@@ -187,25 +279,36 @@ public class Graph<T extends Comparable<T>> {
     return true;
   }
 
+  /**
+   * Computes the adjacency of the graph with every edge reversed.
+   *
+   * @return the reversed adjacency.
+   */
+  private CompressedSparseRow computeReverse() {
+    return adjacency.transpose();
+  }
+
   /**
    * Checks if the graph is symmetric, and returns a boolean result.
    *
    * @return true or false.
    */
   public boolean isSymmetric() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
-    if (edges.size() == 0) {
-      return true;
-    }
-    for (Edge<T> edge : edges) {
-      Edge<T> temp = new Edge<>(edge.getDestination(), edge.getSource());
-      if (!edges.contains(temp)) { // check if every edge has a reverse edge
-        return false;
-      }
-    }
-    return true;
+
+    return symmetric.get();
+  }
+
+  /**
+   * Computes if the graph is symmetric.
+   *
+   * @return true or false.
+   */
+  private boolean computeSymmetric() {
+    // every edge has a reverse edge exactly when reversing every edge gives the same graph
+    return adjacency.hasSameEdges(reverseAdjacency.get());
   }
 
   /**
@@ -214,30 +317,36 @@ public class Graph<T extends Comparable<T>> {
    * @return true or false.
    */
   public boolean isTransitive() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
-    if (edges.size() == 0) {
-      return true;
-    }
 
-    // check if every edge has a transitive edge
-    for (Edge<T> edge1 : edges) {
-      T vertexA = edge1.getSource();
-      T vertexB = edge1.getDestination();
-      for (Edge<T> edge2 : edges) {
-        T vertexC = edge2.getSource();
-        T vertexD = edge2.getDestination();
+    return transitive.get();
+  }
 
-        if (vertexB.equals(vertexC) && !edges.contains(new Edge<T>(vertexA, vertexD))) {
-          Edge<T> temp = new Edge<T>(vertexA, vertexD);
-          if (!edges.contains(temp)) {
-            return false;
-          }
-        }
-      }
-    }
-    return true;
+  /**
+   * Computes if the graph is transitive.
+   *
+   * @return true or false.
+   */
+  private boolean computeTransitive() {
+    // check if every path a -> b -> c has a transitive edge a -> c
+    return new TransitivityChecker(adjacency).isTransitive();
+  }
+
+  /**
+   * Builds the transitive closure of the graph, with an edge a -> b wherever there is a path of one
+   * or more edges from a to b. The closure is the smallest transitive graph that contains every
+   * edge of this graph.
+   *
+   * @return the closure, over the same verticies.
+   */
+  public Graph<T> getTransitiveClosure() {
+    TransitiveClosure closure =
+        new TransitiveClosure(components.get(), adjacency, ForkJoinPool.commonPool());
+    Graph<T> graph = new Graph<>(dictionary, closure.build());
+    graph.transitive.preset(true);
+    return graph;
   }
 
   /**
@@ -246,19 +355,39 @@ public class Graph<T extends Comparable<T>> {
    * @return true or false.
    */
   public boolean isAntiSymmetric() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
 
-    if (edges.size() == 0) {
-      return true;
-    }
+    return antiSymmetric.get();
+  }
 
-    // check if every edge has a reverse edge and if it's a self loop
-    for (Edge<T> edge : edges) {
-      if (edge.getSource() != edge.getDestination()) {
-        if (edges.contains(new Edge<>(edge.getDestination(), edge.getSource()))) {
-          return false;
+  /**
+   * Computes if the graph is anti-symmetric.
+   *
+   * @return true or false.
+   */
+  private boolean computeAntiSymmetric() {
+    CompressedSparseRow reverse = reverseAdjacency.get();
+
+    // merge the sorted destinations and sources of each vertex, a vertex other than itself that
+    // is both means there is an edge and its reverse edge
+    for (int vertex = 0; vertex < adjacency.getVertexCount(); vertex++) {
+      int i = adjacency.getRowStart(vertex);
+      int j = reverse.getRowStart(vertex);
+      while (i < adjacency.getRowEnd(vertex) && j < reverse.getRowEnd(vertex)) {
+        int destination = adjacency.getTarget(i);
+        int source = reverse.getTarget(j);
+        if (destination < source) {
+          i++;
+        } else if (destination > source) {
+          j++;
+        } else {
+          if (destination != vertex) {
+            return false;
+          }
+          i++;
+          j++;
         }
       }
     }
@@ -271,7 +400,7 @@ public class Graph<T extends Comparable<T>> {
    * @return true or false.
    */
   public boolean isEquivalence() {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
 
@@ -283,69 +412,265 @@ public class Graph<T extends Comparable<T>> {
   }
 
   /**
-   * Finds the equivalence class of a vertex, and returns it as a set.
+   * Computes the partition of the verticies into equivalence classes.
+   *
+   * @return the partition, or null if the graph is not an equivalence relation.
+   */
+  private EquivalencePartition computePartition() {
+    return isEquivalence() ? new EquivalencePartition(adjacency) : null;
+  }
+
+  /**
+   * Finds the equivalence class of a vertex, and returns it as a set that iterates the members in
+   * dictionary order.
    *
    * @param vertex The vertex to find the equivalence class of.
    * @return the equivalence class of the vertex.
    */
   public Set<T> getEquivalenceClass(T vertex) {
-    if (verticies.isEmpty() && edges.isEmpty()) {
+    if (isEmpty()) {
       throw new UnsupportedOperationException();
     }
 
-    if (!isEquivalence()) {
+    EquivalencePartition partition = this.partition.get();
+    int id = dictionary.getId(vertex);
+    if (partition == null || id < 0) {
       // if the graph is not an equivalence relation, there is no equivalence class
       return new HashSet<T>();
     }
 
     Set<T> equivalenceClass = new LinkedHashSet<T>();
-    for (Edge<T> edge : edges) {
-      // add all vertices that are connected to the vertex to the equivalence class
-      if (edge.getSource().toString().compareTo(vertex.toString()) == 0) {
-        equivalenceClass.add(edge.getDestination());
-      }
+    int classId = partition.getClassOf(id);
+    for (int i = partition.getClassStart(classId); i < partition.getClassEnd(classId); i++) {
+      equivalenceClass.add(dictionary.getVertex(partition.getMember(i)));
     }
     return equivalenceClass;
   }
 
+  /**
+   * Checks if two verticies are in the same equivalence class, and returns a boolean result.
+   *
+   * @param vertexA the first vertex.
+   * @param vertexB the second vertex.
+   * @return true if the graph is an equivalence relation and the verticies are equivalent.
+   */
+  public boolean isSameEquivalenceClass(T vertexA, T vertexB) {
+    if (isEmpty()) {
+      throw new UnsupportedOperationException();
+    }
+
+    EquivalencePartition partition = this.partition.get();
+    int idA = dictionary.getId(vertexA);
+    int idB = dictionary.getId(vertexB);
+    return partition != null && idA >= 0 && idB >= 0 && partition.isSameClass(idA, idB);
+  }
+
+  /**
+   * Finds the strongly connected components of the graph, the largest groups of verticies that
+   * can all reach each other, in O(V + E) time.
+   *
+   * @return the verticies of each component in ascending order, with the components in
+   *     topological order.
+   */
+  public List<Set<T>> getStronglyConnectedComponents() {
+    StronglyConnectedComponents components = this.components.get();
+    List<Set<T>> result = new ArrayList<>(components.getComponentCount());
+    for (int component = 0; component < components.getComponentCount(); component++) {
+      result.add(getMembers(components, component));
+    }
+    return result;
+  }
+
+  /**
+   * Finds the source components of the graph, which no edges come into from other components.
+   * Nothing outside a source component can reach it, so every search that should visit the whole
+   * graph must start from each of them.
+   *
+   * @return the verticies of each source component in ascending order, with the components in
+   *     topological order.
+   */
+  public List<Set<T>> getSourceComponents() {
+    StronglyConnectedComponents components = this.components.get();
+    List<Set<T>> result = new ArrayList<>();
+    for (int component : components.getSourceComponents()) {
+      result.add(getMembers(components, component));
+    }
+    return result;
+  }
+
+  /**
+   * Finds the smallest vertex of each source component. Unlike {@link #getRoots()}, this covers
+   * source components that are cycles, so a search from these verticies visits the whole graph.
+   *
+   * @return the root candidates in ascending order.
+   */
+  public Set<T> getRootCandidates() {
+    StronglyConnectedComponents components = this.components.get();
+    int[] candidates = new int[components.getSourceComponents().length];
+    int count = 0;
+    for (int component : components.getSourceComponents()) {
+      candidates[count++] = components.getMember(component, 0);
+    }
+    Arrays.sort(candidates);
+    return new LinkedHashSet<>(toVerticies(candidates));
+  }
+
+  /**
+   * Builds the condensation of the graph, the acyclic graph with one vertex per strongly connected
+   * component and an edge wherever an edge joins two different components. Each vertex is the
+   * number of its component in {@link #getStronglyConnectedComponents()}.
+   *
+   * @return the condensation.
+   */
+  public Graph<Integer> getCondensation() {
+    StronglyConnectedComponents components = this.components.get();
+    List<Integer> numbers = new ArrayList<>(components.getComponentCount());
+    for (int component = 0; component < components.getComponentCount(); component++) {
+      numbers.add(component);
+    }
+    return new Graph<>(VertexDictionary.fromSorted(numbers), components.getCondensation());
+  }
+
+  /**
+   * Gets the verticies of a component.
+   *
+   * @param components the strongly connected components of the graph.
+   * @param component the component.
+   * @return the verticies in ascending order.
+   */
+  private Set<T> getMembers(StronglyConnectedComponents components, int component) {
+    Set<T> members = new LinkedHashSet<>();
+    for (int i = 0; i < components.getMemberCount(component); i++) {
+      members.add(dictionary.getVertex(components.getMember(component, i)));
+    }
+    return members;
+  }
+
+  /**
+   * Estimates the number of bytes taken by the graph: its verticies, its adjacency, and every
+   * analysis that has been computed so far, so the estimate grows as more queries are answered.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long getMemoryUsage() {
+    long bytes = dictionary.getMemoryUsage() + adjacency.getMemoryUsage();
+    if (reverseAdjacency.isComputed()) {
+      bytes += reverseAdjacency.get().getMemoryUsage();
+    }
+    if (partition.isComputed() && partition.get() != null) {
+      bytes += partition.get().getMemoryUsage();
+    }
+    if (roots.isComputed()) {
+      bytes += (long) roots.get().length * Integer.BYTES;
+    }
+    if (components.isComputed()) {
+      bytes += components.get().getMemoryUsage();
+    }
+    if (reachability.isComputed()) {
+      bytes += reachability.get().getMemoryUsage();
+    }
+    return bytes;
+  }
+
+  /**
+   * Checks if one vertex can reach another by following zero or more edges. The first query builds
+   * a reachability index of the graph, after which most queries take near constant time.
+   *
+   * @param source the vertex to start from.
+   * @param destination the vertex to reach.
+   * @return true if there is a path from the source to the destination, false otherwise or if
+   *     either vertex is not in the graph.
+   */
+  public boolean isReachable(T source, T destination) {
+    int sourceId = dictionary.getId(source);
+    int destinationId = dictionary.getId(destination);
+    if (sourceId < 0 || destinationId < 0) {
+      return false;
+    }
+
+    return reachability.get().isReachable(sourceId, destinationId);
+  }
+
+  /**
+   * Computes the strongly connected components of the graph.
+   *
+   * @return the components.
+   */
+  private StronglyConnectedComponents computeComponents() {
+    return new StronglyConnectedComponents(adjacency);
+  }
+
+  /**
+   * Computes the reachability index of the graph.
+   *
+   * @return the index.
+   */
+  private ReachabilityIndex computeReachability() {
+    return new ReachabilityIndex(components.get());
+  }
+
   /**
    * Finds the iterativeBreadthFirstSearch path of the graph, and returns it as a list.
    *
    * @return the set of vertices in the iterativeBreadthFirstSearch path.
    */
   public List<T> iterativeBreadthFirstSearch() {
-    Set<T> roots = getRoots();
-    T rootNode = roots.iterator().next();
-    Queue<T> queue = new Queue<>();
-    List<T> visited = new LinkedList<T>();
-    int countRootsVisited = 0;
-
-    visited.add(rootNode); // add the root node to the visited list
-    countRootsVisited++;
-    queue.enqueue(rootNode); // add the root node to the queue
-
-    while (!queue.isEmpty()) {
-      while (!queue.isEmpty()) {
-        for (Edge<T> edge : edges) {
-          if (edge.getSource().compareTo(queue.peek()) == 0
-              && !visited.contains(edge.getDestination())) {
-            visited.add(edge.getDestination());
-            queue.enqueue(edge.getDestination());
-          }
-        }
-        queue.dequeue();
-      }
+    GraphTraversal traversal = new GraphTraversal(adjacency);
 
-      if (countRootsVisited < roots.size()) { // if there are more roots to visit
-        rootNode = nthElementinSet(roots, countRootsVisited); // root node is the next root
-        if (!visited.contains(rootNode)) { // if the root node hasn't been visited
-          visited.add(rootNode);
-          countRootsVisited++;
-          queue.enqueue(rootNode);
-        }
-      }
+    for (int root : findRoots()) { // traverse from each root that hasn't been visited yet
+      traversal.breadthFirstFrom(root);
     }
-    return visited;
+    return toVerticies(traversal.getOrder());
+  }
+
+  /**
+   * Finds the breadth first search path of the graph by expanding each level in parallel, and
+   * returns it as a list in the same order as {@link #iterativeBreadthFirstSearch()}.
+   *
+   * @return the list of vertices in the breadth first search path.
+   */
+  public List<T> parallelBreadthFirstSearch() {
+    return parallelBreadthFirstSearch(
+        ForkJoinPool.commonPool(), ParallelBreadthFirstSearch.DEFAULT_PARALLEL_THRESHOLD);
+  }
+
+  /**
+   * Finds the breadth first search path of the graph by expanding each large enough level in
+   * parallel on a pool, and returns it as a list in the same order as {@link
+   * #iterativeBreadthFirstSearch()}.
+   *
+   * @param pool the pool to expand levels on, levels are expanded sequentially if it has one
+   *     thread.
+   * @param parallelThreshold the smallest number of edges in a level to expand in parallel.
+   * @return the list of vertices in the breadth first search path.
+   */
+  public List<T> parallelBreadthFirstSearch(ForkJoinPool pool, int parallelThreshold) {
+    ParallelBreadthFirstSearch search =
+        new ParallelBreadthFirstSearch(adjacency, pool, parallelThreshold);
+    return toVerticies(search.search(findRoots()));
+  }
+
+  /**
+   * Finds the levels of a breadth first search from all the roots of the graph at once, switching
+   * between top-down and bottom-up search to touch as few edges as possible.
+   *
+   * @return the levels of the search, with the time each level took.
+   */
+  public BreadthFirstLevels<T> breadthFirstLevels() {
+    DirectionOptimizingBreadthFirstSearch search =
+        new DirectionOptimizingBreadthFirstSearch(adjacency, reverseAdjacency.get());
+    search.search(findRoots());
+
+    int levelCount = search.getLevelCount();
+    List<List<T>> levels = new ArrayList<>(levelCount);
+    long[] levelNanos = new long[levelCount];
+    boolean[] levelBottomUp = new boolean[levelCount];
+    for (int level = 0; level < levelCount; level++) {
+      levels.add(toVerticies(search.getLevel(level)));
+      levelNanos[level] = search.getLevelNanos(level);
+      levelBottomUp[level] = search.isBottomUp(level);
+    }
+    return new BreadthFirstLevels<>(levels, levelNanos, levelBottomUp);
   }
 
   /**
@@ -372,45 +697,108 @@ public class Graph<T extends Comparable<T>> {
    * @return the set of vertices in the iterativeDepthFirstSearch path.
    */
   public List<T> iterativeDepthFirstSearch() {
-    Set<T> roots = getRoots();
-    T rootNode = roots.iterator().next();
-    Stack<T> stack = new Stack<>();
-    List<T> visited = new LinkedList<T>();
-    int countRootsVisited = 0;
-    int numberOfUnvisitedAdjacentVerticies = 0;
-
-    visited.add(rootNode); // add the root node to the visited list
-    countRootsVisited++;
-    stack.push(rootNode); // add the root node to the stack
-
-    while (!stack.isEmpty()) {
-      while (!stack.isEmpty()) {
-        for (Edge<T> edge : edges) {
-          if (edge.getSource().compareTo(stack.peek()) == 0
-              && !visited.contains(
-                  edge.getDestination())) { // if the edge is adjacent and unvisited
-            visited.add(edge.getDestination());
-            stack.push(edge.getDestination());
-            numberOfUnvisitedAdjacentVerticies++;
-          }
-        }
-        if (numberOfUnvisitedAdjacentVerticies == 0) { // if there are no more adjacent verticies
-          stack.pop();
-        }
-        numberOfUnvisitedAdjacentVerticies = 0;
-      }
-      if (countRootsVisited < roots.size()) { // if there are more roots to visit
-        rootNode = nthElementinSet(roots, countRootsVisited); // root node is the next root
-        if (!visited.contains(rootNode)) { // if the root node hasn't been visited
-          visited.add(rootNode);
-          countRootsVisited++;
-          stack.push(rootNode);
-        }
-      }
+    GraphTraversal traversal = new GraphTraversal(adjacency);
+
+    for (int root : findRoots()) { // traverse from each root that hasn't been visited yet
+      traversal.depthFirstFrom(root);
+    }
+    return toVerticies(traversal.getOrder());
+  }
+
+  /**
+   * Converts a list of vertex ids to the verticies they identify.
+   *
+   * @param ids the vertex ids.
+   * @return the list of verticies.
+   */
+  private List<T> toVerticies(int[] ids) {
+    List<T> verticies = new ArrayList<>(ids.length);
+    for (int id : ids) {
+      verticies.add(dictionary.getVertex(id));
+    }
+    return verticies;
+  }
+
+  /**
+   * Converts a collection of verticies to their ids, in iteration order.
+   *
+   * @param verticies the verticies.
+   * @return the vertex ids.
+   */
+  private int[] toIds(Iterable<T> verticies) {
+    int[] ids = new int[adjacency.getVertexCount()];
+    int count = 0;
+    for (T vertex : verticies) {
+      ids[count++] = dictionary.getId(vertex);
+    }
+    return Arrays.copyOf(ids, count);
+  }
+
+  /**
+   * Creates a traversal that has already visited the given verticies, in order.
+   *
+   * @param visited the list of verticies that have been visited.
+   * @return the traversal.
+   */
+  private GraphTraversal resumeTraversal(List<T> visited) {
+    GraphTraversal traversal = new GraphTraversal(adjacency);
+    for (T vertex : visited) {
+      traversal.visit(dictionary.getId(vertex));
+    }
+    return traversal;
+  }
+
+  /**
+   * Appends the verticies a traversal visited after the given list was seeded into it.
+   *
+   * @param traversal the traversal created from the visited list.
+   * @param visited the list of verticies that have been visited.
+   * @return the visited list, with the newly visited verticies added.
+   */
+  private List<T> appendVisited(GraphTraversal traversal, List<T> visited) {
+    int[] order = traversal.getOrder();
+    for (int i = visited.size(); i < order.length; i++) {
+      visited.add(dictionary.getVertex(order[i]));
     }
     return visited;
   }
 
+  /**
+   * Visits the component of each root from the given index onwards in breadth first order,
+   * recursing once per root through a trampoline so that any number of roots fits on the stack.
+   *
+   * @param traversal the traversal so far.
+   * @param roots the ids of the root verticies.
+   * @param rootIndex the index of the next root to traverse from.
+   * @return the next step of the recursion.
+   */
+  private Trampoline<GraphTraversal> recursiveBreadthFirstSearch(
+      GraphTraversal traversal, int[] roots, int rootIndex) {
+    if (rootIndex == roots.length) {
+      return Trampoline.done(traversal);
+    }
+    traversal.breadthFirstFrom(roots[rootIndex]);
+    return Trampoline.call(() -> recursiveBreadthFirstSearch(traversal, roots, rootIndex + 1));
+  }
+
+  /**
+   * Visits the component of each root from the given index onwards in depth first order,
+   * recursing once per root through a trampoline so that any number of roots fits on the stack.
+   *
+   * @param traversal the traversal so far.
+   * @param roots the ids of the root verticies.
+   * @param rootIndex the index of the next root to traverse from.
+   * @return the next step of the recursion.
+   */
+  private Trampoline<GraphTraversal> recursiveDepthFirstSearch(
+      GraphTraversal traversal, int[] roots, int rootIndex) {
+    if (rootIndex == roots.length) {
+      return Trampoline.done(traversal);
+    }
+    traversal.depthFirstFrom(roots[rootIndex]);
+    return Trampoline.call(() -> recursiveDepthFirstSearch(traversal, roots, rootIndex + 1));
+  }
+
   /**
    * Finds the recursiveBreadthFirstSearch path of the graph, and returns it as a list, the helper
    * recursive method for recursiveBreadthFirstSearch.
@@ -424,30 +812,18 @@ public class Graph<T extends Comparable<T>> {
    */
   public List<T> recursiveHelperBreadthFirstSearch(
       Set<T> rootSet, T rootNode, Queue<T> queue, List<T> visited, int countRootsVisited) {
-    if (queue.isEmpty()) {
-      return visited;
-    }
-    while (!queue.isEmpty()) {
-      for (Edge<T> edge : edges) {
-        if (edge.getSource().compareTo(queue.peek()) == 0
-            && !visited.contains(edge.getDestination())) {
-          visited.add(edge.getDestination());
-          queue.enqueue(edge.getDestination());
-        }
-      }
-      queue.dequeue();
-    }
+    GraphTraversal traversal = resumeTraversal(visited);
 
-    if (countRootsVisited < rootSet.size()) { // if there are more roots to visit
-      rootNode = nthElementinSet(rootSet, countRootsVisited); // root node is the next root
-      if (!visited.contains(rootNode)) { // if the root node hasn't been visited
-        visited.add(rootNode);
-        countRootsVisited++;
-        queue.enqueue(rootNode);
-      }
+    int[] frontier = new int[adjacency.getVertexCount()];
+    int frontierSize = 0;
+    while (!queue.isEmpty()) { // finish the breadth first search of the current root
+      frontier[frontierSize++] = dictionary.getId(queue.peek());
+      queue.dequeue();
     }
+    traversal.expandBreadthFirst(Arrays.copyOf(frontier, frontierSize));
 
-    return recursiveHelperBreadthFirstSearch(rootSet, rootNode, queue, visited, countRootsVisited);
+    recursiveBreadthFirstSearch(traversal, toIds(rootSet), countRootsVisited).run();
+    return appendVisited(traversal, visited);
   }
 
   /**
@@ -457,17 +833,9 @@ public class Graph<T extends Comparable<T>> {
    * @return the list of vertices in the recursiveBreadthFirstSearch path.
    */
   public List<T> recursiveBreadthFirstSearch() {
-    Set<T> roots = getRoots();
-    T rootNode = roots.iterator().next();
-    Queue<T> queue = new Queue<>();
-    List<T> visited = new LinkedList<T>();
-    int countRootsVisited = 0;
-
-    visited.add(rootNode); // add the root node to the visited list
-    countRootsVisited++;
-    queue.enqueue(rootNode); // add the root node to the queue
-
-    return recursiveHelperBreadthFirstSearch(roots, rootNode, queue, visited, countRootsVisited);
+    GraphTraversal traversal = new GraphTraversal(adjacency);
+    recursiveBreadthFirstSearch(traversal, findRoots(), 0).run();
+    return toVerticies(traversal.getOrder());
   }
 
   /**
@@ -489,35 +857,17 @@ public class Graph<T extends Comparable<T>> {
       List<T> visited,
       int countRootsVisited,
       int numberOfUnvisitedAdjacentVerticies) {
-    if (stack.isEmpty()) {
-      return visited;
-    }
+    GraphTraversal traversal = resumeTraversal(visited);
 
-    while (!stack.isEmpty()) {
-      for (Edge<T> edge : edges) {
-        if (edge.getSource().compareTo(stack.peek()) == 0
-            && !visited.contains(edge.getDestination())) { // if the edge is adjacent and unvisited
-          visited.add(edge.getDestination());
-          stack.push(edge.getDestination());
-          numberOfUnvisitedAdjacentVerticies++;
-        }
-      }
-      if (numberOfUnvisitedAdjacentVerticies == 0) { // if there are no more adjacent verticies
-        stack.pop();
-      }
-      numberOfUnvisitedAdjacentVerticies = 0;
+    int[] path = new int[stack.size()];
+    for (int i = path.length - 1; i >= 0; i--) { // the top of the stack is the end of the path
+      path[i] = dictionary.getId(stack.peek());
+      stack.pop();
     }
+    traversal.expandDepthFirst(path); // finish the depth first search of the current root
 
-    if (countRootsVisited < rootSet.size()) { // if there are more roots to visit
-      rootNode = nthElementinSet(rootSet, countRootsVisited); // root node is the next root
-      if (!visited.contains(rootNode)) { // if the root node hasn't been visited
-        visited.add(rootNode);
-        countRootsVisited++;
-        stack.push(rootNode);
-      }
-    }
-    return recursiveHelperDepthFirstSearch(
-        rootSet, rootNode, stack, visited, countRootsVisited, numberOfUnvisitedAdjacentVerticies);
+    recursiveDepthFirstSearch(traversal, toIds(rootSet), countRootsVisited).run();
+    return appendVisited(traversal, visited);
   }
 
   /**
@@ -527,18 +877,8 @@ public class Graph<T extends Comparable<T>> {
    * @return the list of vertices in the recursiveDepthFirstSearch path.
    */
   public List<T> recursiveDepthFirstSearch() {
-    Set<T> roots = getRoots();
-    T rootNode = roots.iterator().next();
-    Stack<T> stack = new Stack<>();
-    List<T> visited = new LinkedList<T>();
-    int countRootsVisited = 0;
-    int numberOfUnvisitedAdjacentVerticies = 0;
-
-    visited.add(rootNode); // add the root node to the visited list
-    countRootsVisited++;
-    stack.push(rootNode); // add the root node to the stack
-
-    return recursiveHelperDepthFirstSearch(
-        roots, rootNode, stack, visited, countRootsVisited, numberOfUnvisitedAdjacentVerticies);
+    GraphTraversal traversal = new GraphTraversal(adjacency);
+    recursiveDepthFirstSearch(traversal, findRoots(), 0).run();
+    return toVerticies(traversal.getOrder());
   }
 }
@@ -0,0 +1,96 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Builds a graph one vertex or edge at a time, straight into primitive edge arrays, so that a
+ * loader does not need to collect the whole graph in sets of objects first.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public final class GraphBuilder<T extends Comparable<T>> {
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final HashMap<T, Integer> ids = new HashMap<>();
+  private final List<T> verticies = new ArrayList<>();
+  private int[] sources = new int[INITIAL_CAPACITY];
+  private int[] destinations = new int[INITIAL_CAPACITY];
+  private int edgeCount;
+  private AdjacencyStorage storage = AdjacencyStorage.getDefault();
+
+  /**
+   * Chooses where the adjacency of the built graph is kept, instead of the default storage.
+   *
+   * @param storage the storage.
+   * @return this builder.
+   */
+  public GraphBuilder<T> setStorage(AdjacencyStorage storage) {
+    this.storage = storage;
+    return this;
+  }
+
+  /**
+   * Adds a vertex to the graph, if it has not been added already.
+   *
+   * @param vertex the vertex to add.
+   * @return the id of the vertex within this builder.
+   */
+  public int addVertex(T vertex) {
+    Integer id = ids.get(vertex);
+    if (id == null) {
+      id = verticies.size();
+      ids.put(vertex, id);
+      verticies.add(vertex);
+    }
+    return id;
+  }
+
+  /**
+   * Adds an edge to the graph, adding its verticies if they have not been added already. Adding
+   * the same edge twice has no effect on the built graph.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   */
+  public void addEdge(T source, T destination) {
+    int sourceId = addVertex(source);
+    int destinationId = addVertex(destination);
+
+    if (edgeCount == sources.length) {
+      sources = Arrays.copyOf(sources, edgeCount * 2);
+      destinations = Arrays.copyOf(destinations, edgeCount * 2);
+    }
+    sources[edgeCount] = sourceId;
+    destinations[edgeCount] = destinationId;
+    edgeCount++;
+  }
+
+  /**
+   * Builds the graph of every vertex and edge added so far.
+   *
+   * @return the graph.
+   */
+  public Graph<T> build() {
+    VertexDictionary<T> dictionary = new VertexDictionary<>(verticies);
+
+    // the dictionary sorts the verticies, so move every edge over to the sorted ids
+    int[] sortedIds = new int[verticies.size()];
+    for (int id = 0; id < sortedIds.length; id++) {
+      sortedIds[id] = dictionary.getId(verticies.get(id));
+    }
+    int[] sortedSources = new int[edgeCount];
+    int[] sortedDestinations = new int[edgeCount];
+    for (int i = 0; i < edgeCount; i++) {
+      sortedSources[i] = sortedIds[sources[i]];
+      sortedDestinations[i] = sortedIds[destinations[i]];
+    }
+
+    return new Graph<>(
+        dictionary,
+        CompressedSparseRow.fromEdges(
+            dictionary.size(), sortedSources, sortedDestinations, edgeCount, storage));
+  }
+}
@@ -0,0 +1,334 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A compact binary snapshot of a graph, that can be opened again without any parsing. The file is
+ * laid out as follows, every number is big-endian:
+ *
+ * <pre>
+ * header      magic (8 bytes), version, flags, properties, vertex count, edge count (ints)
+ * dictionary  for every vertex in id order, its UTF-8 byte length (int) and then its bytes
+ * checksum    the CRC32 of the header and the dictionary (long)
+ * offsets     the CSR row offsets (vertex count + 1 ints)
+ * targets     the CSR targets (edge count ints)
+ * checksum    the CRC32 of everything before it (long)
+ * </pre>
+ *
+ * <p>A snapshot is read through a memory mapping. The offsets and targets are copied straight into
+ * the CSR arrays in bulk, or with off-heap {@link AdjacencyStorage} they are used in place.
+ *
+ * <p>Every snapshot that is opened is checked before it is used. The header, the saved properties
+ * and the dictionary must match their own checksum, the verticies must be in dictionary order, and
+ * the offsets and targets must form valid CSR rows: the offsets start at 0, never decrease and end
+ * at the edge count, and every row is ascending with every target a vertex of the graph. A flipped
+ * bit that gets past these checks can only move an edge to another valid target. Checking the
+ * whole file against its final checksum as well reads every byte of it once more, so it is only
+ * done when the {@value #VERIFY_PROPERTY} system property is {@code true}.
+ *
+ * <p>Opening a snapshot decodes and checks its dictionary, so it takes time proportional to the
+ * verticies and the length of their names, and checks the rows in one pass over the edges. With
+ * heap storage the offsets and targets are also copied, in bulk, while with off-heap storage they
+ * are read in place and not copied.
+ */
+public final class GraphSnapshot {
+  /** The system property that turns on checking the whole file checksum of every snapshot. */
+  public static final String VERIFY_PROPERTY = "se281.snapshot.verify";
+
+  private static final long MAGIC = 0x5345323831475246L; // "SE281GRF"
+  private static final int VERSION = 2;
+  private static final int HEADER_SIZE = Long.BYTES + 5 * Integer.BYTES;
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  private static final int FLAG_PROPERTIES = 1;
+
+  private static final int REFLEXIVE = 1;
+  private static final int SYMMETRIC = 1 << 1;
+  private static final int TRANSITIVE = 1 << 2;
+  private static final int ANTI_SYMMETRIC = 1 << 3;
+
+  private GraphSnapshot() {}
+
+  /**
+   * Checks if a file starts with the snapshot magic number.
+   *
+   * @param file the file to check.
+   * @return true if the file is a snapshot, false otherwise.
+   * @throws IOException If the file cannot be read.
+   */
+  public static boolean isSnapshot(Path file) throws IOException {
+    try (InputStream in = Files.newInputStream(file)) {
+      byte[] magic = in.readNBytes(Long.BYTES);
+      if (magic.length < Long.BYTES) {
+        return false;
+      }
+
+      long value = 0;
+      for (byte b : magic) {
+        value = (value << Byte.SIZE) | (b & 0xFF);
+      }
+      return value == MAGIC;
+    }
+  }
+
+  /**
+   * Writes a snapshot of a graph to a file, replacing the file if it is an older snapshot.
+   *
+   * <p>The snapshot is written to a temporary file next to the file and then moved over it, so the
+   * file is never seen half written. A graph that still has the old snapshot mapped in place keeps
+   * reading the old contents, which stay on disk until they are unmapped.
+   *
+   * @param graph the graph to save.
+   * @param file the file to write.
+   * @param includeProperties if the relation properties of the graph should be computed and saved,
+   *     so they do not need to be computed when the snapshot is read.
+   * @throws FileAlreadyExistsException If the file exists and is not a snapshot.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void write(Graph<String> graph, Path file, boolean includeProperties)
+      throws IOException {
+    if (Files.exists(file) && !isSnapshot(file)) {
+      throw new FileAlreadyExistsException(file.toString(), null, "not a graph snapshot");
+    }
+
+    Path directory = file.toAbsolutePath().getParent();
+    Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    try {
+      writeTo(graph, temporary, includeProperties);
+      Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Writes a snapshot of a graph to a new file.
+   *
+   * @param graph the graph to save.
+   * @param file the file to write.
+   * @param includeProperties if the relation properties of the graph should be saved.
+   * @throws IOException If the file cannot be written.
+   */
+  private static void writeTo(Graph<String> graph, Path file, boolean includeProperties)
+      throws IOException {
+    VertexDictionary<String> dictionary = graph.getDictionary();
+    CompressedSparseRow adjacency = graph.getAdjacency();
+
+    // an empty graph has no properties, every check of it is unsupported
+    boolean hasProperties = includeProperties && dictionary.size() > 0;
+    int properties = 0;
+    if (hasProperties) {
+      properties |= graph.isReflexive() ? REFLEXIVE : 0;
+      properties |= graph.isSymmetric() ? SYMMETRIC : 0;
+      properties |= graph.isTransitive() ? TRANSITIVE : 0;
+      properties |= graph.isAntiSymmetric() ? ANTI_SYMMETRIC : 0;
+    }
+
+    try (CheckedOutputStream checked =
+            new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), new CRC32());
+        DataOutputStream out = new DataOutputStream(checked)) {
+      out.writeLong(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(hasProperties ? FLAG_PROPERTIES : 0);
+      out.writeInt(properties);
+      out.writeInt(adjacency.getVertexCount());
+      out.writeInt(adjacency.getEdgeCount());
+
+      for (String vertex : dictionary.getVerticies()) {
+        byte[] bytes = vertex.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+      }
+      out.writeLong(checked.getChecksum().getValue());
+
+      for (int vertex = 0; vertex <= adjacency.getVertexCount(); vertex++) {
+        out.writeInt(adjacency.getRowStart(vertex));
+      }
+      for (int i = 0; i < adjacency.getEdgeCount(); i++) {
+        out.writeInt(adjacency.getTarget(i));
+      }
+
+      out.writeLong(checked.getChecksum().getValue());
+    }
+  }
+
+  /**
+   * Reads a graph from a snapshot.
+   *
+   * @param file the snapshot file.
+   * @return the graph, with any saved properties already filled in.
+   * @throws IOException If the file cannot be read, is not a snapshot, has an unsupported version,
+   *     does not match its layout or its dictionary checksum, has invalid rows, or fails its whole
+   *     file checksum when that is checked.
+   */
+  public static Graph<String> read(Path file) throws IOException {
+    MappedFile mapped = MappedFile.map(file);
+    long size = mapped.size();
+
+    if (size < HEADER_SIZE + 2 * Long.BYTES || mapped.getLong(0) != MAGIC) {
+      throw new IOException(file + " is not a graph snapshot");
+    }
+    int version = mapped.getInt(Long.BYTES);
+    if (version != VERSION) {
+      throw new IOException(file + " has unsupported snapshot version " + version);
+    }
+
+    if (Boolean.getBoolean(VERIFY_PROPERTY)) {
+      CRC32 checksum = new CRC32();
+      mapped.updateChecksum(checksum, 0, size - Long.BYTES);
+      if (checksum.getValue() != mapped.getLong(size - Long.BYTES)) {
+        throw new IOException(file + " is corrupt, its checksum does not match");
+      }
+    }
+
+    int flags = mapped.getInt(Long.BYTES + Integer.BYTES);
+    int properties = mapped.getInt(Long.BYTES + 2 * Integer.BYTES);
+    int vertexCount = mapped.getInt(Long.BYTES + 3 * Integer.BYTES);
+    int edgeCount = mapped.getInt(Long.BYTES + 4 * Integer.BYTES);
+    if (vertexCount < 0 || edgeCount < 0) {
+      throw new IOException(file + " is corrupt, its header has a negative count");
+    }
+
+    long position = HEADER_SIZE;
+    List<String> verticies = new ArrayList<>(vertexCount);
+    byte[] bytes = new byte[64];
+    for (int id = 0; id < vertexCount; id++) {
+      if (position + Integer.BYTES > size) {
+        throw new IOException(file + " is corrupt, its dictionary is truncated");
+      }
+      int length = mapped.getInt(position);
+      position += Integer.BYTES;
+      if (length < 0 || position + length > size) {
+        throw new IOException(file + " is corrupt, its dictionary is truncated");
+      }
+      if (length > bytes.length) {
+        bytes = new byte[Math.max(length, bytes.length * 2)];
+      }
+      mapped.get(position, bytes, length);
+      position += length;
+      verticies.add(new String(bytes, 0, length, StandardCharsets.UTF_8));
+    }
+
+    long expectedSize =
+        position + Long.BYTES + ((long) vertexCount + 1 + edgeCount) * Integer.BYTES + Long.BYTES;
+    if (expectedSize != size) {
+      throw new IOException(file + " is corrupt, its size does not match its header");
+    }
+
+    CRC32 dictionaryChecksum = new CRC32();
+    mapped.updateChecksum(dictionaryChecksum, 0, position);
+    if (dictionaryChecksum.getValue() != mapped.getLong(position)) {
+      throw new IOException(file + " is corrupt, its header or dictionary checksum does not match");
+    }
+    position += Long.BYTES;
+
+    VertexDictionary<String> dictionary;
+    try {
+      dictionary = VertexDictionary.fromSorted(verticies);
+    } catch (IllegalArgumentException e) {
+      throw new IOException(file + " is corrupt, its dictionary is out of order", e);
+    }
+
+    Graph<String> graph =
+        new Graph<>(dictionary, readAdjacency(file, mapped, position, vertexCount, edgeCount));
+
+    if ((flags & FLAG_PROPERTIES) != 0) {
+      graph.presetProperties(
+          (properties & REFLEXIVE) != 0,
+          (properties & SYMMETRIC) != 0,
+          (properties & TRANSITIVE) != 0,
+          (properties & ANTI_SYMMETRIC) != 0);
+    }
+    return graph;
+  }
+
+  /**
+   * Reads the offsets and targets sections of a snapshot, and checks that they form valid rows.
+   * For heap storage they are copied into arrays in bulk, for any other storage the sections of the
+   * file are mapped in place.
+   *
+   * @param file the snapshot file.
+   * @param mapped the mapped snapshot file.
+   * @param position the position of the offsets section.
+   * @param vertexCount the number of verticies.
+   * @param edgeCount the number of edges.
+   * @return the adjacency.
+   * @throws IOException If the file cannot be mapped, or its rows are invalid.
+   */
+  private static CompressedSparseRow readAdjacency(
+      Path file, MappedFile mapped, long position, int vertexCount, int edgeCount)
+      throws IOException {
+    long targetsPosition = position + (long) (vertexCount + 1) * Integer.BYTES;
+    AdjacencyStorage storage = AdjacencyStorage.getDefault();
+
+    CompressedSparseRow adjacency;
+    if (storage == AdjacencyStorage.HEAP) {
+      int[] offsets = new int[vertexCount + 1];
+      mapped.getInts(position, offsets);
+      int[] targets = new int[edgeCount];
+      mapped.getInts(targetsPosition, targets);
+      adjacency = new CompressedSparseRow(offsets, targets);
+    } else {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+        adjacency =
+            new CompressedSparseRow(
+                AdjacencyStorage.MAPPED,
+                BufferIntStore.mapReadOnly(channel, position, vertexCount + 1),
+                BufferIntStore.mapReadOnly(channel, targetsPosition, edgeCount));
+      }
+    }
+
+    checkRows(file, adjacency);
+    return adjacency;
+  }
+
+  /**
+   * Checks that the rows of an adjacency are valid CSR rows, so a corrupt snapshot is not used.
+   *
+   * @param file the snapshot file.
+   * @param adjacency the adjacency read from it.
+   * @throws IOException If an offset or a target is out of place.
+   */
+  private static void checkRows(Path file, CompressedSparseRow adjacency) throws IOException {
+    int vertexCount = adjacency.getVertexCount();
+    int edgeCount = adjacency.getEdgeCount();
+    if (adjacency.getRowStart(0) != 0) {
+      throw new IOException(file + " is corrupt, its offsets do not start at 0");
+    }
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      int start = adjacency.getRowStart(vertex);
+      int end = adjacency.getRowEnd(vertex);
+      if (end < start || end > edgeCount) {
+        throw new IOException(file + " is corrupt, the offset of vertex " + vertex + " is invalid");
+      }
+      int previous = -1;
+      for (int i = start; i < end; i++) {
+        int target = adjacency.getTarget(i);
+        if (target <= previous || target >= vertexCount) {
+          throw new IOException(file + " is corrupt, edge " + i + " has an invalid target");
+        }
+        previous = target;
+      }
+    }
+
+    if (adjacency.getRowStart(vertexCount) != edgeCount) {
+      throw new IOException(file + " is corrupt, its offsets do not end at its edge count");
+    }
+  }
+}
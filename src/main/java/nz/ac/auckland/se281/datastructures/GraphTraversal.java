@@ -0,0 +1,152 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The traversal engine shared by the breadth first and depth first searches of a graph. It walks
+ * the sorted rows of a {@link CompressedSparseRow}, keeps the visited verticies in a boolean array
+ * and records the order the verticies were visited in, so a full traversal is O(V + E).
+ *
+ * <p>A traversal may be started from several roots one after another, verticies already visited
+ * from an earlier root are not visited again.
+ */
+public final class GraphTraversal {
+  private final CompressedSparseRow graph;
+  private final boolean[] visited;
+  private final int[] order;
+  private int visitedCount;
+
+  private final int[] queue;
+  private final int[] stack;
+  private final int[] cursors;
+
+  /**
+   * Creates a traversal of a graph where no vertex has been visited yet.
+   *
+   * @param graph the graph to traverse.
+   */
+  public GraphTraversal(CompressedSparseRow graph) {
+    int vertexCount = graph.getVertexCount();
+    this.graph = graph;
+    this.visited = new boolean[vertexCount];
+    this.order = new int[vertexCount];
+    this.queue = new int[vertexCount];
+    this.stack = new int[vertexCount];
+    this.cursors = new int[vertexCount];
+  }
+
+  /**
+   * Checks if a vertex has been visited.
+   *
+   * @param vertex the vertex to check.
+   * @return true if the vertex has been visited, false otherwise.
+   */
+  public boolean isVisited(int vertex) {
+    return visited[vertex];
+  }
+
+  /**
+   * Marks a vertex as visited and adds it to the end of the visit order.
+   *
+   * @param vertex the unvisited vertex to visit.
+   */
+  public void visit(int vertex) {
+    visited[vertex] = true;
+    order[visitedCount++] = vertex;
+  }
+
+  /**
+   * Visits every vertex reachable from a root in breadth first order, visiting the destinations of
+   * each vertex in ascending order. Does nothing if the root has already been visited.
+   *
+   * @param root the vertex to start from.
+   */
+  public void breadthFirstFrom(int root) {
+    if (visited[root]) {
+      return;
+    }
+    visit(root);
+    expandBreadthFirst(new int[] {root});
+  }
+
+  /**
+   * Continues a breadth first search from a queue of verticies that have already been visited.
+   *
+   * @param frontier the visited verticies waiting to be expanded, front of the queue first.
+   */
+  public void expandBreadthFirst(int[] frontier) {
+    int head = 0;
+    int tail = frontier.length;
+    System.arraycopy(frontier, 0, queue, 0, tail);
+
+    while (head < tail) {
+      int source = queue[head++];
+      for (int i = graph.getRowStart(source); i < graph.getRowEnd(source); i++) {
+        int destination = graph.getTarget(i);
+        if (!visited[destination]) {
+          visit(destination);
+          queue[tail++] = destination;
+        }
+      }
+    }
+  }
+
+  /**
+   * Visits every vertex reachable from a root in depth first order, going deeper through the
+   * smallest unvisited destination first. Does nothing if the root has already been visited.
+   *
+   * @param root the vertex to start from.
+   */
+  public void depthFirstFrom(int root) {
+    if (visited[root]) {
+      return;
+    }
+    visit(root);
+    expandDepthFirst(new int[] {root});
+  }
+
+  /**
+   * Continues a depth first search from a stack of verticies that have already been visited.
+   *
+   * @param path the visited verticies on the stack, bottom of the stack first.
+   */
+  public void expandDepthFirst(int[] path) {
+    int top = 0;
+    for (int vertex : path) {
+      stack[top] = vertex;
+      cursors[top] = graph.getRowStart(vertex);
+      top++;
+    }
+
+    while (top > 0) {
+      int source = stack[top - 1];
+      int i = cursors[top - 1];
+      int end = graph.getRowEnd(source);
+
+      // skip destinations that have been visited since this vertex was last on top of the stack
+      while (i < end && visited[graph.getTarget(i)]) {
+        i++;
+      }
+
+      if (i == end) { // if there are no more unvisited adjacent verticies
+        top--;
+      } else {
+        int destination = graph.getTarget(i);
+        cursors[top - 1] = i + 1;
+        visit(destination);
+        stack[top] = destination;
+        cursors[top] = graph.getRowStart(destination);
+        top++;
+      }
+    }
+  }
+
+  /**
+   * Gets the verticies in the order they were visited.
+   *
+   * @return the ids of the visited verticies.
+   */
+  public int[] getOrder() {
+    return Arrays.copyOf(order, visitedCount);
+  }
+}
@@ -0,0 +1,42 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/** An int store backed by a plain {@code int[]} on the Java heap. */
+final class HeapIntStore implements IntStore {
+  private final int[] values;
+
+  /**
+   * Creates a store that wraps an array, without copying it.
+   *
+   * @param values the array.
+   */
+  HeapIntStore(int[] values) {
+    this.values = values;
+  }
+
+  @Override
+  public int length() {
+    return values.length;
+  }
+
+  @Override
+  public int get(int index) {
+    return values[index];
+  }
+
+  @Override
+  public void set(int index, int value) {
+    values[index] = value;
+  }
+
+  @Override
+  public void sort(int from, int to) {
+    Arrays.sort(values, from, to);
+  }
+
+  @Override
+  public IntStore copyOf(int length) {
+    return new HeapIntStore(Arrays.copyOf(values, length));
+  }
+}
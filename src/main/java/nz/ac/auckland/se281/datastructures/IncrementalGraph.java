@@ -0,0 +1,438 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A graph that can be changed one vertex or edge at a time. Counters of self loops, edges without
+ * a reverse edge, and pairs of verticies with edges both ways are kept up to date on every change,
+ * so the reflexive, symmetric and anti-symmetric checks take O(1) time.
+ *
+ * <p>The graph is an overlay on the immutable graph it starts from, which is never copied: new
+ * verticies get the ids after those of the base graph, and the edges added to or removed from the
+ * base graph are kept as packed primitive keys. The counters are only found, with one pass over
+ * the edges, the first time a check needs them.
+ *
+ * <p>Every other query runs on an immutable {@link Graph} of the current verticies and edges, which
+ * is built the first time it is needed after a change by merging the overlay into the rows of the
+ * base graph.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public final class IncrementalGraph<T extends Comparable<T>> {
+  private final VertexDictionary<T> baseDictionary;
+  private final CompressedSparseRow baseAdjacency;
+
+  private final HashMap<T, Integer> addedIds = new HashMap<>();
+  private final List<T> addedVerticies = new ArrayList<>();
+  private final LongHashSet addedEdges = new LongHashSet();
+  private final LongHashSet removedEdges = new LongHashSet();
+  private int edgeCount;
+
+  private boolean hasCounters;
+  private int selfLoopCount;
+  private int unmatchedEdgeCount;
+  private int mutualPairCount;
+
+  private Graph<T> snapshot;
+
+  /**
+   * Creates an incremental graph on top of a graph.
+   *
+   * @param base the graph to start from.
+   */
+  private IncrementalGraph(Graph<T> base) {
+    this.baseDictionary = base.getDictionary();
+    this.baseAdjacency = base.getAdjacency();
+    this.edgeCount = baseAdjacency.getEdgeCount();
+    this.snapshot = base; // nothing has changed yet, so the graph can be reused
+  }
+
+  /**
+   * Creates an incremental graph with the same verticies and edges as a graph, without copying
+   * them.
+   *
+   * @param <T> The type of each vertex, that have a total ordering.
+   * @param graph the graph to start from.
+   * @return the incremental graph.
+   */
+  public static <T extends Comparable<T>> IncrementalGraph<T> from(Graph<T> graph) {
+    return new IncrementalGraph<>(graph);
+  }
+
+  /**
+   * Adds a vertex to the graph.
+   *
+   * @param vertex the vertex to add.
+   * @return true if the vertex was added, false if it was already in the graph.
+   */
+  public boolean addVertex(T vertex) {
+    if (getId(vertex) >= 0) {
+      return false;
+    }
+    addedIds.put(vertex, getVertexCount());
+    addedVerticies.add(vertex);
+    snapshot = null;
+    return true;
+  }
+
+  /**
+   * Adds an edge to the graph, adding its verticies if they are not already in the graph.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   * @return true if the edge was added, false if it was already in the graph.
+   */
+  public boolean addEdge(T source, T destination) {
+    addVertex(source);
+    addVertex(destination);
+
+    int sourceId = getId(source);
+    int destinationId = getId(destination);
+    if (hasEdgeBetweenIds(sourceId, destinationId)) {
+      return false;
+    }
+
+    long key = toKey(sourceId, destinationId);
+    if (!removedEdges.remove(key)) { // adding back a removed edge of the base graph
+      addedEdges.add(key);
+    }
+    edgeCount++;
+
+    if (hasCounters) {
+      if (sourceId == destinationId) {
+        selfLoopCount++;
+      } else if (hasEdgeBetweenIds(destinationId, sourceId)) {
+        unmatchedEdgeCount--; // the reverse edge now has a match
+        mutualPairCount++;
+      } else {
+        unmatchedEdgeCount++;
+      }
+    }
+    snapshot = null;
+    return true;
+  }
+
+  /**
+   * Removes an edge from the graph. Its verticies stay in the graph.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   * @return true if the edge was removed, false if it was not in the graph.
+   */
+  public boolean removeEdge(T source, T destination) {
+    int sourceId = getId(source);
+    int destinationId = getId(destination);
+    if (sourceId < 0 || destinationId < 0 || !hasEdgeBetweenIds(sourceId, destinationId)) {
+      return false;
+    }
+
+    long key = toKey(sourceId, destinationId);
+    if (!addedEdges.remove(key)) { // removing an edge of the base graph
+      removedEdges.add(key);
+    }
+    edgeCount--;
+
+    if (hasCounters) {
+      if (sourceId == destinationId) {
+        selfLoopCount--;
+      } else if (hasEdgeBetweenIds(destinationId, sourceId)) {
+        unmatchedEdgeCount++; // the reverse edge has lost its match
+        mutualPairCount--;
+      } else {
+        unmatchedEdgeCount--;
+      }
+    }
+    snapshot = null;
+    return true;
+  }
+
+  /**
+   * Checks if there is an edge between two verticies.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   * @return true if the edge is in the graph, false otherwise.
+   */
+  public boolean hasEdge(T source, T destination) {
+    int sourceId = getId(source);
+    int destinationId = getId(destination);
+    return sourceId >= 0 && destinationId >= 0 && hasEdgeBetweenIds(sourceId, destinationId);
+  }
+
+  /**
+   * Gets the id of a vertex, the id in the base graph for its verticies and the ids after them in
+   * the order they were added for new verticies.
+   *
+   * @param vertex the vertex.
+   * @return the id, or -1 if the vertex is not in the graph.
+   */
+  private int getId(T vertex) {
+    int id = baseDictionary.getId(vertex);
+    if (id >= 0) {
+      return id;
+    }
+    Integer addedId = addedIds.get(vertex);
+    return addedId != null ? addedId : -1;
+  }
+
+  /**
+   * Checks if there is an edge between the ids of two verticies.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return true if the edge is in the graph, false otherwise.
+   */
+  private boolean hasEdgeBetweenIds(int source, int destination) {
+    long key = toKey(source, destination);
+    if (!addedEdges.isEmpty() && addedEdges.contains(key)) {
+      return true;
+    }
+    return isBaseEdge(source, destination)
+        && (removedEdges.isEmpty() || !removedEdges.contains(key));
+  }
+
+  /**
+   * Checks if there is an edge between the ids of two verticies in the base graph.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return true if the base graph has the edge, false otherwise.
+   */
+  private boolean isBaseEdge(int source, int destination) {
+    int baseCount = baseDictionary.size();
+    return source < baseCount
+        && destination < baseCount
+        && baseAdjacency.hasEdge(source, destination);
+  }
+
+  /**
+   * Gets the number of verticies in the graph.
+   *
+   * @return the vertex count.
+   */
+  public int getVertexCount() {
+    return baseDictionary.size() + addedVerticies.size();
+  }
+
+  /**
+   * Gets the number of edges in the graph.
+   *
+   * @return the edge count.
+   */
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Checks if the graph is reflexive, in O(1) time once the counters are found.
+   *
+   * @return true if every vertex has a self loop, false otherwise.
+   */
+  public boolean isReflexive() {
+    checkNotEmpty();
+    findCounters();
+    return edgeCount > 0 && selfLoopCount == getVertexCount();
+  }
+
+  /**
+   * Checks if the graph is symmetric, in O(1) time once the counters are found.
+   *
+   * @return true if every edge has a reverse edge, false otherwise.
+   */
+  public boolean isSymmetric() {
+    checkNotEmpty();
+    findCounters();
+    return unmatchedEdgeCount == 0;
+  }
+
+  /**
+   * Checks if the graph is anti-symmetric, in O(1) time once the counters are found.
+   *
+   * @return true if no two different verticies have edges both ways, false otherwise.
+   */
+  public boolean isAntiSymmetric() {
+    checkNotEmpty();
+    findCounters();
+    return mutualPairCount == 0;
+  }
+
+  /**
+   * Checks if the graph is transitive, using the graph of the current verticies and edges.
+   *
+   * @return true or false.
+   */
+  public boolean isTransitive() {
+    checkNotEmpty();
+    return toGraph().isTransitive();
+  }
+
+  /**
+   * Checks if the graph is an equivalence relation. Transitivity is only checked when the graph is
+   * reflexive and symmetric.
+   *
+   * @return true or false.
+   */
+  public boolean isEquivalence() {
+    return isReflexive() && isSymmetric() && isTransitive();
+  }
+
+  /** Finds the counters with one pass over the current edges, the first time they are needed. */
+  private void findCounters() {
+    if (hasCounters) {
+      return;
+    }
+    for (int source = 0; source < baseAdjacency.getVertexCount(); source++) {
+      for (int i = baseAdjacency.getRowStart(source); i < baseAdjacency.getRowEnd(source); i++) {
+        int destination = baseAdjacency.getTarget(i);
+        if (removedEdges.isEmpty() || !removedEdges.contains(toKey(source, destination))) {
+          countEdge(source, destination);
+        }
+      }
+    }
+    addedEdges.forEach(key -> countEdge((int) (key >>> Integer.SIZE), (int) key));
+
+    mutualPairCount /= 2; // both edges of every mutual pair were counted
+    hasCounters = true;
+  }
+
+  /**
+   * Adds an edge of the current graph to the counters.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   */
+  private void countEdge(int source, int destination) {
+    if (source == destination) {
+      selfLoopCount++;
+    } else if (hasEdgeBetweenIds(destination, source)) {
+      mutualPairCount++;
+    } else {
+      unmatchedEdgeCount++;
+    }
+  }
+
+  /**
+   * Gets an immutable graph of the current verticies and edges, which is built once after every
+   * change and then reused. The rows of the base graph are copied in the storage of the base graph
+   * without their removed edges and with their added edges, and only rows that have changed, or
+   * every row when new verticies change the dictionary order, are sorted again.
+   *
+   * @return the graph.
+   */
+  public Graph<T> toGraph() {
+    if (snapshot == null) {
+      snapshot = buildGraph();
+    }
+    return snapshot;
+  }
+
+  /**
+   * Builds the graph of the current verticies and edges.
+   *
+   * @return the graph.
+   */
+  private Graph<T> buildGraph() {
+    int vertexCount = getVertexCount();
+    int baseCount = baseDictionary.size();
+
+    VertexDictionary<T> dictionary = baseDictionary;
+    final int[] newIds; // the dictionary id of every overlay id, null when they are the same
+    if (addedVerticies.isEmpty()) {
+      newIds = null;
+    } else {
+      List<T> verticies = new ArrayList<>(vertexCount);
+      verticies.addAll(baseDictionary.getVerticies());
+      verticies.addAll(addedVerticies);
+      dictionary = new VertexDictionary<>(verticies);
+      newIds = new int[vertexCount];
+      for (int id = 0; id < vertexCount; id++) {
+        newIds[id] = dictionary.getId(verticies.get(id));
+      }
+    }
+
+    // group the added edges by source, in the overlay ids
+    int[] addedOffsets = new int[vertexCount + 1];
+    addedEdges.forEach(key -> addedOffsets[(int) (key >>> Integer.SIZE) + 1]++);
+    for (int id = 0; id < vertexCount; id++) {
+      addedOffsets[id + 1] += addedOffsets[id];
+    }
+    int[] addedTargets = new int[addedEdges.size()];
+    int[] cursor = addedOffsets.clone();
+    addedEdges.forEach(key -> addedTargets[cursor[(int) (key >>> Integer.SIZE)]++] = (int) key);
+
+    // lay the rows out in dictionary order
+    int[] degrees = new int[vertexCount];
+    for (int id = 0; id < vertexCount; id++) {
+      int degree = addedOffsets[id + 1] - addedOffsets[id];
+      if (id < baseCount) {
+        degree += baseAdjacency.getOutDegree(id);
+      }
+      degrees[newIds == null ? id : newIds[id]] = degree;
+    }
+    if (!removedEdges.isEmpty()) {
+      removedEdges.forEach(key -> degrees[mapId(newIds, (int) (key >>> Integer.SIZE))]--);
+    }
+
+    AdjacencyStorage storage = baseAdjacency.getStorage();
+    IntStore offsets = storage.allocate(vertexCount + 1);
+    int offset = 0;
+    for (int id = 0; id < vertexCount; id++) {
+      offsets.set(id, offset);
+      offset += degrees[id];
+    }
+    offsets.set(vertexCount, offset);
+
+    IntStore targets = storage.allocate(edgeCount);
+    for (int id = 0; id < vertexCount; id++) {
+      int rowStart = offsets.get(mapId(newIds, id));
+      int write = rowStart;
+      if (id < baseCount) {
+        for (int i = baseAdjacency.getRowStart(id); i < baseAdjacency.getRowEnd(id); i++) {
+          int destination = baseAdjacency.getTarget(i);
+          if (removedEdges.isEmpty() || !removedEdges.contains(toKey(id, destination))) {
+            targets.set(write++, mapId(newIds, destination));
+          }
+        }
+      }
+      for (int i = addedOffsets[id]; i < addedOffsets[id + 1]; i++) {
+        targets.set(write++, mapId(newIds, addedTargets[i]));
+      }
+      if (newIds != null || addedOffsets[id + 1] > addedOffsets[id]) {
+        targets.sort(rowStart, write);
+      }
+    }
+
+    return new Graph<>(dictionary, new CompressedSparseRow(storage, offsets, targets));
+  }
+
+  /**
+   * Maps an overlay id to its id in the dictionary of the built graph.
+   *
+   * @param newIds the dictionary id of every overlay id, or null when they are the same.
+   * @param id the overlay id.
+   * @return the dictionary id.
+   */
+  private static int mapId(int[] newIds, int id) {
+    return newIds == null ? id : newIds[id];
+  }
+
+  /** Throws if the graph has no verticies, like the checks of an empty {@link Graph}. */
+  private void checkNotEmpty() {
+    if (getVertexCount() == 0) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Packs the ids of the endpoints of an edge into one key.
+   *
+   * @param source the id of the source vertex.
+   * @param destination the id of the destination vertex.
+   * @return the key of the edge.
+   */
+  private static long toKey(int source, int destination) {
+    return ((long) source << Integer.SIZE) | destination;
+  }
+}
@@ -0,0 +1,46 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * A fixed length array of ints, which may be kept on the Java heap or outside of it. It is the
+ * backing store of the offsets and targets of a {@link CompressedSparseRow}.
+ */
+interface IntStore {
+  /**
+   * Gets the number of ints in the store.
+   *
+   * @return the length.
+   */
+  int length();
+
+  /**
+   * Gets the int at an index.
+   *
+   * @param index the index, from 0 up to the length.
+   * @return the int.
+   */
+  int get(int index);
+
+  /**
+   * Sets the int at an index.
+   *
+   * @param index the index, from 0 up to the length.
+   * @param value the int.
+   */
+  void set(int index, int value);
+
+  /**
+   * Sorts a range of the store into ascending order.
+   *
+   * @param from the inclusive start of the range.
+   * @param to the exclusive end of the range.
+   */
+  void sort(int from, int to);
+
+  /**
+   * Copies the start of the store into a new store of the same kind.
+   *
+   * @param length the number of ints to copy.
+   * @return the new store.
+   */
+  IntStore copyOf(int length);
+}
@@ -0,0 +1,156 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * A set of non-negative longs in a single open addressing table, so each key takes a table slot
+ * instead of a boxed {@link Long} and a hash map entry. Collisions are resolved by linear probing,
+ * and removals shift the following keys back so no tombstones are left behind.
+ */
+final class LongHashSet {
+  private static final long EMPTY = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  private long[] table = newTable(INITIAL_CAPACITY);
+  private int size;
+
+  /**
+   * Creates a table with every slot empty.
+   *
+   * @param capacity the number of slots, a power of two.
+   * @return the table.
+   */
+  private static long[] newTable(int capacity) {
+    long[] table = new long[capacity];
+    Arrays.fill(table, EMPTY);
+    return table;
+  }
+
+  /**
+   * Finds the slot a key hashes to.
+   *
+   * @param key the key.
+   * @param mask the table length minus one.
+   * @return the slot.
+   */
+  private static int slot(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L; // spread the ids of both endpoints over the table
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  /**
+   * Adds a key to the set.
+   *
+   * @param key the key, which must not be negative.
+   * @return true if the key was added, false if it was already in the set.
+   */
+  boolean add(long key) {
+    int mask = table.length - 1;
+    int i = slot(key, mask);
+    while (table[i] != EMPTY) {
+      if (table[i] == key) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+    table[i] = key;
+    if (++size * 2 > table.length) {
+      resize();
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a key is in the set.
+   *
+   * @param key the key.
+   * @return true if the key is in the set, false otherwise.
+   */
+  boolean contains(long key) {
+    int mask = table.length - 1;
+    for (int i = slot(key, mask); table[i] != EMPTY; i = (i + 1) & mask) {
+      if (table[i] == key) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Removes a key from the set.
+   *
+   * @param key the key.
+   * @return true if the key was removed, false if it was not in the set.
+   */
+  boolean remove(long key) {
+    int mask = table.length - 1;
+    int i = slot(key, mask);
+    while (table[i] != key) {
+      if (table[i] == EMPTY) {
+        return false;
+      }
+      i = (i + 1) & mask;
+    }
+
+    // shift back every following key that would no longer be found past the new gap
+    int gap = i;
+    for (int j = (gap + 1) & mask; table[j] != EMPTY; j = (j + 1) & mask) {
+      int home = slot(table[j], mask);
+      if (((j - home) & mask) >= ((j - gap) & mask)) {
+        table[gap] = table[j];
+        gap = j;
+      }
+    }
+    table[gap] = EMPTY;
+    size--;
+    return true;
+  }
+
+  /**
+   * Gets the number of keys in the set.
+   *
+   * @return the size.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Checks if the set has no keys.
+   *
+   * @return true if the set is empty, false otherwise.
+   */
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Runs an action on every key in the set, in no particular order.
+   *
+   * @param action the action.
+   */
+  void forEach(LongConsumer action) {
+    for (long key : table) {
+      if (key != EMPTY) {
+        action.accept(key);
+      }
+    }
+  }
+
+  /** Doubles the table, so it stays at most half full. */
+  private void resize() {
+    long[] old = table;
+    table = newTable(old.length * 2);
+    int mask = table.length - 1;
+    for (long key : old) {
+      if (key != EMPTY) {
+        int i = slot(key, mask);
+        while (table[i] != EMPTY) {
+          i = (i + 1) & mask;
+        }
+        table[i] = key;
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Checksum;
+
+/**
+ * A read only file mapped into memory, so it can be read without copying it onto the heap first.
+ * A single mapping is limited to 2 GB, so larger files are mapped as several regions.
+ */
+public final class MappedFile {
+  private static final int REGION_BITS = 30;
+  private static final long REGION_SIZE = 1L << REGION_BITS;
+
+  private final MappedByteBuffer[] regions;
+  private final long size;
+
+  /**
+   * Creates a mapped file from its regions.
+   *
+   * @param regions the mapped regions, all but the last holding {@link #REGION_SIZE} bytes.
+   * @param size the size of the file in bytes.
+   */
+  private MappedFile(MappedByteBuffer[] regions, long size) {
+    this.regions = regions;
+    this.size = size;
+  }
+
+  /**
+   * Maps a file into memory. The mapping stays valid after the file channel is closed.
+   *
+   * @param file the file to map.
+   * @return the mapped file.
+   * @throws IOException If the file cannot be opened or mapped.
+   */
+  public static MappedFile map(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      int regionCount = (int) ((size + REGION_SIZE - 1) >>> REGION_BITS);
+      MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+
+      for (int i = 0; i < regions.length; i++) {
+        long start = i * REGION_SIZE;
+        regions[i] =
+            channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+      }
+      return new MappedFile(regions, size);
+    }
+  }
+
+  /**
+   * Gets the size of the file.
+   *
+   * @return the number of bytes in the file.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Gets the byte at a position in the file.
+   *
+   * @param position the position, from 0 up to the size of the file.
+   * @return the byte.
+   */
+  public byte get(long position) {
+    return regions[(int) (position >>> REGION_BITS)].get((int) (position & (REGION_SIZE - 1)));
+  }
+
+  /**
+   * Gets the big-endian int at a position in the file.
+   *
+   * @param position the position of the first byte of the int.
+   * @return the int.
+   */
+  public int getInt(long position) {
+    MappedByteBuffer region = regions[(int) (position >>> REGION_BITS)];
+    int offset = (int) (position & (REGION_SIZE - 1));
+    if (offset + Integer.BYTES <= region.limit()) {
+      return region.getInt(offset);
+    }
+
+    // the int straddles two regions, so put it together a byte at a time
+    int value = 0;
+    for (int i = 0; i < Integer.BYTES; i++) {
+      value = (value << Byte.SIZE) | (get(position + i) & 0xFF);
+    }
+    return value;
+  }
+
+  /**
+   * Gets the big-endian long at a position in the file.
+   *
+   * @param position the position of the first byte of the long.
+   * @return the long.
+   */
+  public long getLong(long position) {
+    long high = getInt(position);
+    long low = getInt(position + Integer.BYTES) & 0xFFFFFFFFL;
+    return (high << Integer.SIZE) | low;
+  }
+
+  /**
+   * Copies bytes from the file into an array.
+   *
+   * @param position the position of the first byte to copy.
+   * @param destination the array to copy into, from index 0.
+   * @param length the number of bytes to copy.
+   */
+  public void get(long position, byte[] destination, int length) {
+    int copied = 0;
+    while (copied < length) {
+      long at = position + copied;
+      MappedByteBuffer region = regions[(int) (at >>> REGION_BITS)];
+      int offset = (int) (at & (REGION_SIZE - 1));
+      int count = Math.min(region.limit() - offset, length - copied);
+      region.get(offset, destination, copied, count);
+      copied += count;
+    }
+  }
+
+  /**
+   * Copies big-endian ints from the file into an array, filling the whole array. Runs of ints that
+   * lie inside one region are copied in bulk.
+   *
+   * @param position the position of the first byte of the first int.
+   * @param destination the array to fill.
+   */
+  public void getInts(long position, int[] destination) {
+    int copied = 0;
+    while (copied < destination.length) {
+      long at = position + (long) copied * Integer.BYTES;
+      MappedByteBuffer region = regions[(int) (at >>> REGION_BITS)];
+      int offset = (int) (at & (REGION_SIZE - 1));
+      int count = Math.min((region.limit() - offset) / Integer.BYTES, destination.length - copied);
+
+      if (count == 0) {
+        destination[copied++] = getInt(at);
+      } else {
+        region.slice(offset, count * Integer.BYTES).asIntBuffer().get(destination, copied, count);
+        copied += count;
+      }
+    }
+  }
+
+  /**
+   * Adds a range of the file to a checksum.
+   *
+   * @param checksum the checksum to update.
+   * @param start the position of the first byte to add.
+   * @param end the position one past the last byte to add.
+   */
+  public void updateChecksum(Checksum checksum, long start, long end) {
+    long at = start;
+    while (at < end) {
+      MappedByteBuffer region = regions[(int) (at >>> REGION_BITS)];
+      int offset = (int) (at & (REGION_SIZE - 1));
+      int count = (int) Math.min(region.limit() - offset, end - at);
+      checksum.update(region.slice(offset, count));
+      at += count;
+    }
+  }
+}
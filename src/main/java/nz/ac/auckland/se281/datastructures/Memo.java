@@ -0,0 +1,64 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.function.Supplier;
+
+/**
+ * A value that is computed the first time it is needed and then served from a cache. It is safe to
+ * share between threads, the value is computed at most once even if several threads ask for it at
+ * the same time.
+ *
+ * @param <V> The type of the value, which may be null.
+ */
+public final class Memo<V> {
+  private final Supplier<V> supplier;
+  private volatile boolean isComputed;
+  private V value;
+
+  /**
+   * Creates a memo that computes its value with the given supplier.
+   *
+   * @param supplier the computation of the value.
+   */
+  public Memo(Supplier<V> supplier) {
+    this.supplier = supplier;
+  }
+
+  /**
+   * Gets the value, computing it if it has not been computed yet.
+   *
+   * @return the value.
+   */
+  public V get() {
+    if (!isComputed) {
+      synchronized (this) {
+        if (!isComputed) {
+          value = supplier.get();
+          isComputed = true; // publishes the value to other threads
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Sets the value without computing it, for when it is already known, such as when it was saved
+   * with the graph. Does nothing if the value has already been computed.
+   *
+   * @param value the value.
+   */
+  public synchronized void preset(V value) {
+    if (!isComputed) {
+      this.value = value;
+      isComputed = true;
+    }
+  }
+
+  /**
+   * Checks if the value has already been computed.
+   *
+   * @return true if the value is cached, false otherwise.
+   */
+  public boolean isComputed() {
+    return isComputed;
+  }
+}
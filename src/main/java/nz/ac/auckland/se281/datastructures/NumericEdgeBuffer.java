@@ -0,0 +1,168 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * A growable buffer of edges between whole number verticies, stored as primitive longs. A loader
+ * fills one buffer per thread, and the buffers are then merged into a single graph.
+ */
+public final class NumericEdgeBuffer {
+  private static final int INITIAL_CAPACITY = 1 << 10;
+  private static final long DENSE_RANGE_FACTOR = 4;
+  private static final long DENSE_RANGE_SLACK = 1 << 16;
+
+  private long[] sources = new long[INITIAL_CAPACITY];
+  private long[] destinations = new long[INITIAL_CAPACITY];
+  private int size;
+
+  /**
+   * Adds an edge to the end of the buffer.
+   *
+   * @param source the source vertex.
+   * @param destination the destination vertex.
+   */
+  public void add(long source, long destination) {
+    if (size == sources.length) {
+      sources = Arrays.copyOf(sources, size * 2);
+      destinations = Arrays.copyOf(destinations, size * 2);
+    }
+    sources[size] = source;
+    destinations[size] = destination;
+    size++;
+  }
+
+  /**
+   * Gets the number of edges in the buffer.
+   *
+   * @return the edge count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Merges buffers of edges into a graph whose verticies are the decimal strings of the numbers.
+   * Numeric order is already the dictionary order of whole numbers, so the id of a vertex is its
+   * rank among the distinct numbers, and the endpoints of every buffer are turned into ids in
+   * parallel.
+   *
+   * @param buffers the buffers to merge.
+   * @return the graph of every edge in the buffers.
+   */
+  public static Graph<String> toGraph(List<NumericEdgeBuffer> buffers) {
+    int[] starts = new int[buffers.size() + 1];
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for (int i = 0; i < buffers.size(); i++) {
+      NumericEdgeBuffer buffer = buffers.get(i);
+      starts[i + 1] = Math.addExact(starts[i], buffer.size);
+      for (int j = 0; j < buffer.size; j++) {
+        min = Math.min(min, Math.min(buffer.sources[j], buffer.destinations[j]));
+        max = Math.max(max, Math.max(buffer.sources[j], buffer.destinations[j]));
+      }
+    }
+    int edgeCount = starts[buffers.size()];
+
+    // most edge lists number their verticies from 0 or 1 with few gaps, so ranks can be looked up
+    long range = max - min + 1;
+    long[] verticies;
+    LongToIntFunction rank;
+    if (edgeCount > 0
+        && range < Integer.MAX_VALUE
+        && range < DENSE_RANGE_FACTOR * edgeCount + DENSE_RANGE_SLACK) {
+      long base = min;
+      int[] ranks = denseRanks(buffers, base, (int) range);
+      verticies = new long[ranks[ranks.length - 1]];
+      for (int offset = 0; offset + 1 < ranks.length; offset++) {
+        if (ranks[offset] != ranks[offset + 1]) {
+          verticies[ranks[offset]] = base + offset;
+        }
+      }
+      rank = vertex -> ranks[(int) (vertex - base)];
+    } else {
+      verticies = sortedDistinct(buffers, edgeCount, starts);
+      long[] sorted = verticies;
+      rank = vertex -> Arrays.binarySearch(sorted, vertex);
+    }
+
+    int[] sourceIds = new int[edgeCount];
+    int[] destinationIds = new int[edgeCount];
+    IntStream.range(0, buffers.size())
+        .parallel()
+        .forEach(
+            i -> {
+              NumericEdgeBuffer buffer = buffers.get(i);
+              for (int j = 0; j < buffer.size; j++) {
+                sourceIds[starts[i] + j] = rank.applyAsInt(buffer.sources[j]);
+                destinationIds[starts[i] + j] = rank.applyAsInt(buffer.destinations[j]);
+              }
+            });
+
+    List<String> names = new ArrayList<>(verticies.length);
+    for (long vertex : verticies) {
+      names.add(Long.toString(vertex));
+    }
+
+    return new Graph<>(
+        VertexDictionary.fromSorted(names),
+        CompressedSparseRow.fromEdges(verticies.length, sourceIds, destinationIds, edgeCount));
+  }
+
+  /**
+   * Ranks the numbers in a small range by marking the ones that appear and counting the marks.
+   *
+   * @param buffers the buffers of edges.
+   * @param base the smallest number in the buffers.
+   * @param range the number of values from the smallest to the largest number.
+   * @return the rank of every value from base onwards, with the distinct count in the last slot.
+   */
+  private static int[] denseRanks(List<NumericEdgeBuffer> buffers, long base, int range) {
+    int[] ranks = new int[range + 1];
+    for (NumericEdgeBuffer buffer : buffers) {
+      for (int j = 0; j < buffer.size; j++) {
+        ranks[(int) (buffer.sources[j] - base)] = 1;
+        ranks[(int) (buffer.destinations[j] - base)] = 1;
+      }
+    }
+
+    // turn the marks into an exclusive prefix sum, which is the rank of every marked value
+    int count = 0;
+    for (int offset = 0; offset < ranks.length; offset++) {
+      int mark = ranks[offset];
+      ranks[offset] = count;
+      count += mark;
+    }
+    return ranks;
+  }
+
+  /**
+   * Finds the distinct numbers in the buffers with a parallel sort.
+   *
+   * @param buffers the buffers of edges.
+   * @param edgeCount the number of edges in all the buffers.
+   * @param starts the index of the first edge of every buffer.
+   * @return the distinct numbers in ascending order.
+   */
+  private static long[] sortedDistinct(
+      List<NumericEdgeBuffer> buffers, int edgeCount, int[] starts) {
+    long[] endpoints = new long[Math.multiplyExact(edgeCount, 2)];
+    for (int i = 0; i < buffers.size(); i++) {
+      NumericEdgeBuffer buffer = buffers.get(i);
+      System.arraycopy(buffer.sources, 0, endpoints, 2 * starts[i], buffer.size);
+      System.arraycopy(buffer.destinations, 0, endpoints, 2 * starts[i] + buffer.size, buffer.size);
+    }
+    Arrays.parallelSort(endpoints);
+
+    int distinctCount = 0;
+    for (int i = 0; i < endpoints.length; i++) {
+      if (i == 0 || endpoints[i] != endpoints[i - 1]) {
+        endpoints[distinctCount++] = endpoints[i];
+      }
+    }
+    return Arrays.copyOf(endpoints, distinctCount);
+  }
+}
@@ -0,0 +1,247 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A level synchronous breadth first search that expands each level of the search across a {@link
+ * ForkJoinPool}, and visits the verticies in exactly the same order as the sequential search.
+ *
+ * <p>Each level is expanded in three parallel passes. First every frontier vertex claims its
+ * unvisited destinations, keeping the claim of the earliest frontier vertex with a compare and
+ * swap. Then every frontier vertex counts the destinations it owns, and finally copies them into
+ * the next frontier at the offset given by the counts before it. The sequential search would have
+ * added each vertex from the earliest frontier vertex that reaches it, so this rebuilds its order.
+ * Small levels, and every level on a single threaded pool, are expanded sequentially, as forking
+ * would cost more than it saves.
+ */
+public final class ParallelBreadthFirstSearch {
+  /** The smallest number of edges in a level that is worth expanding in parallel. */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 14;
+
+  private static final int UNCLAIMED = Integer.MAX_VALUE;
+
+  private final CompressedSparseRow graph;
+  private final ForkJoinPool pool;
+  private final int parallelThreshold;
+
+  private final AtomicLongArray visited;
+  private final AtomicIntegerArray owners;
+  private final int[] order;
+  private int visitedCount;
+
+  /**
+   * Creates a search of a graph where no vertex has been visited yet.
+   *
+   * @param graph the graph to search.
+   * @param pool the pool to expand levels on.
+   * @param parallelThreshold the smallest number of edges in a level to expand in parallel.
+   */
+  public ParallelBreadthFirstSearch(
+      CompressedSparseRow graph, ForkJoinPool pool, int parallelThreshold) {
+    int vertexCount = graph.getVertexCount();
+    this.graph = graph;
+    this.pool = pool;
+    this.parallelThreshold = parallelThreshold;
+    this.visited = new AtomicLongArray((vertexCount + Long.SIZE - 1) / Long.SIZE);
+    this.owners = new AtomicIntegerArray(vertexCount);
+    this.order = new int[vertexCount];
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      owners.set(vertex, UNCLAIMED);
+    }
+  }
+
+  /**
+   * Visits every vertex reachable from each root in turn, skipping roots already visited.
+   *
+   * @param roots the ids of the root verticies, in the order to search from them.
+   * @return the ids of the verticies in the order they were visited.
+   */
+  public int[] search(int[] roots) {
+    for (int root : roots) {
+      if (isVisited(root)) {
+        continue;
+      }
+      markVisited(root);
+      order[visitedCount++] = root;
+
+      int frontierStart = visitedCount - 1;
+      while (frontierStart < visitedCount) { // the frontier is the last level of the order
+        int frontierEnd = visitedCount;
+        if (pool.getParallelism() == 1
+            || countEdges(frontierStart, frontierEnd) < parallelThreshold) {
+          expandSequentially(frontierStart, frontierEnd);
+        } else {
+          expandInParallel(frontierStart, frontierEnd);
+        }
+        frontierStart = frontierEnd;
+      }
+    }
+    return Arrays.copyOf(order, visitedCount);
+  }
+
+  /**
+   * Counts the edges leaving the verticies of a frontier.
+   *
+   * @param frontierStart the index in the order of the first frontier vertex.
+   * @param frontierEnd the index in the order one past the last frontier vertex.
+   * @return the number of edges to expand.
+   */
+  private long countEdges(int frontierStart, int frontierEnd) {
+    long edges = 0;
+    for (int i = frontierStart; i < frontierEnd; i++) {
+      edges += graph.getOutDegree(order[i]);
+    }
+    return edges;
+  }
+
+  /**
+   * Expands a frontier on the calling thread, appending the next level to the order.
+   *
+   * @param frontierStart the index in the order of the first frontier vertex.
+   * @param frontierEnd the index in the order one past the last frontier vertex.
+   */
+  private void expandSequentially(int frontierStart, int frontierEnd) {
+    for (int i = frontierStart; i < frontierEnd; i++) {
+      int source = order[i];
+      for (int j = graph.getRowStart(source); j < graph.getRowEnd(source); j++) {
+        int destination = graph.getTarget(j);
+        if (!isVisited(destination)) {
+          markVisited(destination);
+          order[visitedCount++] = destination;
+        }
+      }
+    }
+  }
+
+  /**
+   * Expands a frontier across the pool, appending the next level to the order in the same order as
+   * {@link #expandSequentially(int, int)} would.
+   *
+   * @param frontierStart the index in the order of the first frontier vertex.
+   * @param frontierEnd the index in the order one past the last frontier vertex.
+   */
+  private void expandInParallel(int frontierStart, int frontierEnd) {
+    int frontierSize = frontierEnd - frontierStart;
+
+    // claim every unvisited destination for the earliest frontier vertex that reaches it
+    pool.invoke(
+        new RangeTask(
+            frontierStart,
+            frontierEnd,
+            (from, to) -> {
+              for (int i = from; i < to; i++) {
+                int source = order[i];
+                for (int j = graph.getRowStart(source); j < graph.getRowEnd(source); j++) {
+                  int destination = graph.getTarget(j);
+                  if (!isVisited(destination)) {
+                    claim(destination, i);
+                  }
+                }
+              }
+            }));
+
+    // count the destinations each frontier vertex owns, then turn the counts into offsets
+    int[] offsets = new int[frontierSize + 1];
+    pool.invoke(
+        new RangeTask(
+            frontierStart,
+            frontierEnd,
+            (from, to) -> {
+              for (int i = from; i < to; i++) {
+                offsets[i - frontierStart + 1] = countOwned(i);
+              }
+            }));
+    for (int i = 0; i < frontierSize; i++) {
+      offsets[i + 1] += offsets[i];
+    }
+
+    // copy the owned destinations into the next level, in the order of their rows
+    int nextStart = visitedCount;
+    pool.invoke(
+        new RangeTask(
+            frontierStart,
+            frontierEnd,
+            (from, to) -> {
+              for (int i = from; i < to; i++) {
+                int position = nextStart + offsets[i - frontierStart];
+                int source = order[i];
+                for (int j = graph.getRowStart(source); j < graph.getRowEnd(source); j++) {
+                  int destination = graph.getTarget(j);
+                  if (owners.get(destination) == i && !isVisited(destination)) {
+                    order[position++] = destination;
+                  }
+                }
+              }
+            }));
+    visitedCount = nextStart + offsets[frontierSize];
+
+    pool.invoke(
+        new RangeTask(
+            nextStart,
+            visitedCount,
+            (from, to) -> {
+              for (int i = from; i < to; i++) {
+                markVisited(order[i]);
+              }
+            }));
+  }
+
+  /**
+   * Counts the unvisited destinations owned by a frontier vertex.
+   *
+   * @param frontierIndex the index in the order of the frontier vertex.
+   * @return the number of destinations the vertex owns.
+   */
+  private int countOwned(int frontierIndex) {
+    int source = order[frontierIndex];
+    int count = 0;
+    for (int j = graph.getRowStart(source); j < graph.getRowEnd(source); j++) {
+      int destination = graph.getTarget(j);
+      if (owners.get(destination) == frontierIndex && !isVisited(destination)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Claims a vertex for a frontier vertex, unless an earlier frontier vertex has claimed it.
+   *
+   * @param vertex the vertex to claim.
+   * @param frontierIndex the index in the order of the claiming frontier vertex.
+   */
+  private void claim(int vertex, int frontierIndex) {
+    int owner = owners.get(vertex);
+    while (frontierIndex < owner && !owners.compareAndSet(vertex, owner, frontierIndex)) {
+      owner = owners.get(vertex);
+    }
+  }
+
+  /**
+   * Checks if a vertex has been visited in an earlier level.
+   *
+   * @param vertex the vertex to check.
+   * @return true if the vertex has been visited, false otherwise.
+   */
+  private boolean isVisited(int vertex) {
+    return (visited.get(vertex >>> 6) & (1L << vertex)) != 0;
+  }
+
+  /**
+   * Atomically marks a vertex as visited.
+   *
+   * @param vertex the vertex to mark.
+   */
+  private void markVisited(int vertex) {
+    int word = vertex >>> 6;
+    long bit = 1L << vertex;
+    long current = visited.get(word);
+    while ((current & bit) == 0 && !visited.compareAndSet(word, current, current | bit)) {
+      current = visited.get(word);
+    }
+  }
+}
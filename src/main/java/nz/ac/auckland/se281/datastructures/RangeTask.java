@@ -0,0 +1,64 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.concurrent.RecursiveAction;
+
+/** A fork join task that splits a range of indices in half until it is small enough to run. */
+final class RangeTask extends RecursiveAction {
+  /** The largest range run without splitting it further, by default. */
+  static final int DEFAULT_GRAIN = 256;
+
+  private static final long serialVersionUID = 1L;
+
+  private final int from;
+  private final int to;
+  private final int grain;
+  private final RangeBody body;
+
+  /**
+   * Creates a task for a range of indices, that splits it into parts of the default size.
+   *
+   * @param from the first index.
+   * @param to one past the last index.
+   * @param body the work to do on each part of the range.
+   */
+  RangeTask(int from, int to, RangeBody body) {
+    this(from, to, DEFAULT_GRAIN, body);
+  }
+
+  /**
+   * Creates a task for a range of indices.
+   *
+   * @param from the first index.
+   * @param to one past the last index.
+   * @param grain the largest part of the range to run without splitting it further.
+   * @param body the work to do on each part of the range.
+   */
+  RangeTask(int from, int to, int grain, RangeBody body) {
+    this.from = from;
+    this.to = to;
+    this.grain = grain;
+    this.body = body;
+  }
+
+  @Override
+  protected void compute() {
+    if (to - from <= grain) {
+      body.run(from, to);
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    invokeAll(new RangeTask(from, middle, grain, body), new RangeTask(middle, to, grain, body));
+  }
+
+  /** The work to do on a range of indices. */
+  @FunctionalInterface
+  interface RangeBody {
+    /**
+     * Does the work for every index in a range.
+     *
+     * @param from the first index.
+     * @param to one past the last index.
+     */
+    void run(int from, int to);
+  }
+}
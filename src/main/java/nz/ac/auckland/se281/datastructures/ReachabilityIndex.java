@@ -0,0 +1,300 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An index that answers whether one vertex can reach another, built on the condensation of the
+ * graph in O(k(V + E)) time and O(kV) space.
+ *
+ * <p>Verticies in the same strongly connected component always reach each other. Between
+ * components, most queries are answered without a search by two filters that can only rule
+ * reachability out. The first is the topological numbering of the components, as edges only go
+ * from lower to higher numbers. The second is a set of k interval labels in the style of GRAIL:
+ * each label comes from a depth first traversal of the condensation in a random order, and holds
+ * the post-order rank of a component and the lowest rank below it, so the interval of a reachable
+ * component always lies inside the interval of the component that reaches it. The remaining
+ * queries are answered by a depth first search that skips every component the filters rule out.
+ *
+ * <p>The same traversals also prove reachability for many queries: a component discovered after
+ * the source and ranked before it, in any traversal, lies in the source's depth first search tree.
+ *
+ * <p>Queries may be run from several threads at once. Each search borrows its scratch space from
+ * a small pool owned by the index, so threads that only query once, such as the sessions of a
+ * server, do not each allocate scratch space that outlives the index.
+ */
+public final class ReachabilityIndex {
+  /** The number of interval labels given to each component by default. */
+  public static final int DEFAULT_TRAVERSALS = 3;
+
+  private static final long SEED = 281;
+
+  // the most idle scratch spaces kept for later searches, enough for one search per core
+  private static final int MAX_IDLE_SEARCHES = Runtime.getRuntime().availableProcessors();
+
+  private final StronglyConnectedComponents components;
+  private final CompressedSparseRow condensation;
+  private final int traversals;
+  private final int[] lows;
+  private final int[] ranks;
+  private final int[] discoveries;
+  private final ArrayDeque<SearchState> idleSearches = new ArrayDeque<>();
+
+  /**
+   * Builds the index of a graph with the default number of interval labels.
+   *
+   * @param components the strongly connected components of the graph.
+   */
+  public ReachabilityIndex(StronglyConnectedComponents components) {
+    this(components, DEFAULT_TRAVERSALS);
+  }
+
+  /**
+   * Builds the index of a graph.
+   *
+   * @param components the strongly connected components of the graph.
+   * @param traversals the number of interval labels to give each component.
+   */
+  public ReachabilityIndex(StronglyConnectedComponents components, int traversals) {
+    this.components = components;
+    this.condensation = components.getCondensation();
+    this.traversals = traversals;
+
+    int componentCount = condensation.getVertexCount();
+    this.lows = new int[componentCount * traversals];
+    this.ranks = new int[componentCount * traversals];
+    this.discoveries = new int[componentCount * traversals];
+
+    Random random = new Random(SEED);
+    for (int traversal = 0; traversal < traversals; traversal++) {
+      label(traversal, random);
+    }
+  }
+
+  /**
+   * Labels every component with its discovery order, its post-order rank and the lowest rank below
+   * it, from a depth first traversal that starts from the components in a random order and walks
+   * each row from a random position.
+   *
+   * @param traversal the number of the label to fill in.
+   * @param random the source of the traversal order.
+   */
+  private void label(int traversal, Random random) {
+    int componentCount = condensation.getVertexCount();
+    boolean[] isVisited = new boolean[componentCount];
+    int[] path = new int[componentCount];
+    int[] steps = new int[componentCount];
+    int[] starts = new int[componentCount];
+
+    int[] order = new int[componentCount];
+    for (int i = 0; i < componentCount; i++) {
+      int j = random.nextInt(i + 1);
+      order[i] = order[j];
+      order[j] = i;
+    }
+
+    int rank = 0;
+    int discovery = 0;
+    for (int root : order) {
+      if (isVisited[root]) {
+        continue;
+      }
+
+      int depth = 0;
+      isVisited[root] = true;
+      discoveries[root * traversals + traversal] = discovery++;
+      path[depth] = root;
+      steps[depth] = 0;
+      starts[depth++] = random.nextInt(condensation.getOutDegree(root) + 1);
+
+      while (depth > 0) {
+        int component = path[depth - 1];
+        int degree = condensation.getOutDegree(component);
+
+        if (steps[depth - 1] < degree) {
+          int step = steps[depth - 1]++;
+          int child =
+              condensation.getTarget(
+                  condensation.getRowStart(component) + (starts[depth - 1] + step) % degree);
+          if (!isVisited[child]) {
+            isVisited[child] = true;
+            discoveries[child * traversals + traversal] = discovery++;
+            path[depth] = child;
+            steps[depth] = 0;
+            starts[depth++] = random.nextInt(condensation.getOutDegree(child) + 1);
+          }
+          continue;
+        }
+
+        // every child has been ranked, as the condensation has no cycles
+        int low = rank;
+        for (int i = condensation.getRowStart(component);
+            i < condensation.getRowEnd(component);
+            i++) {
+          low = Math.min(low, lows[condensation.getTarget(i) * traversals + traversal]);
+        }
+        lows[component * traversals + traversal] = low;
+        ranks[component * traversals + traversal] = rank++;
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * Checks if one vertex can reach another by following zero or more edges.
+   *
+   * @param source the id of the vertex to start from.
+   * @param destination the id of the vertex to reach.
+   * @return true if there is a path from the source to the destination, false otherwise.
+   */
+  public boolean isReachable(int source, int destination) {
+    int from = components.getComponent(source);
+    int to = components.getComponent(destination);
+    if (from == to) {
+      return true;
+    }
+    if (!mayReach(from, to)) {
+      return false;
+    }
+    if (mustReach(from, to)) {
+      return true;
+    }
+    SearchState search = borrowSearch();
+    try {
+      return search.search(from, to);
+    } finally {
+      returnSearch(search);
+    }
+  }
+
+  /**
+   * Takes an idle scratch space from the pool, or allocates one if every one is in use.
+   *
+   * @return the scratch space.
+   */
+  private SearchState borrowSearch() {
+    synchronized (idleSearches) {
+      SearchState search = idleSearches.poll();
+      if (search != null) {
+        return search;
+      }
+    }
+    return new SearchState(condensation.getVertexCount());
+  }
+
+  /**
+   * Gives a scratch space back to the pool, dropping it if the pool is full.
+   *
+   * @param search the scratch space.
+   */
+  private void returnSearch(SearchState search) {
+    synchronized (idleSearches) {
+      if (idleSearches.size() < MAX_IDLE_SEARCHES) {
+        idleSearches.push(search);
+      }
+    }
+  }
+
+  /**
+   * Checks the filters that rule reachability out between two different components.
+   *
+   * @param from the component to start from.
+   * @param to the component to reach.
+   * @return false if the destination is certainly not reachable, true if it may be.
+   */
+  private boolean mayReach(int from, int to) {
+    if (from > to) {
+      return false; // edges only go forwards in topological order
+    }
+    for (int traversal = 0; traversal < traversals; traversal++) {
+      int fromIndex = from * traversals + traversal;
+      int toIndex = to * traversals + traversal;
+      if (lows[toIndex] < lows[fromIndex] || ranks[toIndex] > ranks[fromIndex]) {
+        return false; // the interval of the destination is not inside the interval of the source
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks if a component lies in the depth first search tree of another in any traversal, which
+   * proves that it is reachable.
+   *
+   * @param from the component to start from.
+   * @param to the component to reach.
+   * @return true if the destination is certainly reachable, false if it may not be.
+   */
+  private boolean mustReach(int from, int to) {
+    for (int traversal = 0; traversal < traversals; traversal++) {
+      int fromIndex = from * traversals + traversal;
+      int toIndex = to * traversals + traversal;
+      if (discoveries[fromIndex] <= discoveries[toIndex] && ranks[toIndex] <= ranks[fromIndex]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** The scratch space of a pruned search, reused by later searches so it is rarely allocated. */
+  private final class SearchState {
+    private final int[] visitedStamps;
+    private final int[] stack;
+    private int stamp;
+
+    /**
+     * Creates the scratch space for a condensation.
+     *
+     * @param componentCount the number of components.
+     */
+    private SearchState(int componentCount) {
+      this.visitedStamps = new int[componentCount];
+      this.stack = new int[componentCount];
+    }
+
+    /**
+     * Searches the condensation depth first, skipping every component that the filters rule out.
+     * Components are marked with the number of the search, so nothing needs clearing in between.
+     *
+     * @param from the component to start from.
+     * @param to the component to reach.
+     * @return true if the destination is reachable, false otherwise.
+     */
+    private boolean search(int from, int to) {
+      if (++stamp == 0) { // the stamps have wrapped around, so start them again
+        Arrays.fill(visitedStamps, 0);
+        stamp = 1;
+      }
+
+      int top = 0;
+      stack[top++] = from;
+      visitedStamps[from] = stamp;
+      while (top > 0) {
+        int component = stack[--top];
+        for (int i = condensation.getRowStart(component);
+            i < condensation.getRowEnd(component);
+            i++) {
+          int child = condensation.getTarget(i);
+          if (child == to || (visitedStamps[child] != stamp && mustReach(child, to))) {
+            return true;
+          }
+          if (visitedStamps[child] != stamp && mayReach(child, to)) {
+            visitedStamps[child] = stamp;
+            stack[top++] = child;
+          }
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Gets the number of bytes taken by the interval labels, not counting the components or the
+   * pooled scratch space of the searches.
+   *
+   * @return the size in bytes.
+   */
+  public long getMemoryUsage() {
+    return (long) (lows.length + ranks.length + discoveries.length) * Integer.BYTES;
+  }
+}
@@ -0,0 +1,262 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * The strongly connected components of a graph, found with an iterative version of Tarjan's
+ * algorithm in O(V + E) time, so deep graphs cannot overflow the call stack.
+ *
+ * <p>Components are numbered in topological order: every edge between two different components goes
+ * from a lower numbered component to a higher numbered one. A source component has no edges coming
+ * in from other components, so nothing outside it can reach it, which makes its verticies
+ * candidates for the roots of a search.
+ */
+public final class StronglyConnectedComponents {
+  private static final int UNVISITED = -1;
+
+  private final int[] components;
+  private final int componentCount;
+  private final CompressedSparseRow condensation;
+  private final int[] memberOffsets;
+  private final int[] members;
+  private final int[] sourceComponents;
+
+  /**
+   * Finds the strongly connected components of a graph.
+   *
+   * @param graph the graph.
+   */
+  public StronglyConnectedComponents(CompressedSparseRow graph) {
+    int vertexCount = graph.getVertexCount();
+    int[] index = new int[vertexCount];
+    int[] low = new int[vertexCount];
+    boolean[] isOnStack = new boolean[vertexCount];
+    int[] stack = new int[vertexCount];
+    int[] path = new int[vertexCount];
+    int[] cursors = new int[vertexCount];
+    components = new int[vertexCount];
+    Arrays.fill(index, UNVISITED);
+
+    int nextIndex = 0;
+    int found = 0;
+    int top = 0;
+    for (int root = 0; root < vertexCount; root++) {
+      if (index[root] != UNVISITED) {
+        continue;
+      }
+
+      int depth = 0;
+      index[root] = nextIndex;
+      low[root] = nextIndex++;
+      stack[top++] = root;
+      isOnStack[root] = true;
+      path[depth] = root;
+      cursors[depth++] = graph.getRowStart(root);
+
+      while (depth > 0) {
+        int vertex = path[depth - 1];
+        int i = cursors[depth - 1];
+
+        if (i < graph.getRowEnd(vertex)) {
+          cursors[depth - 1] = i + 1;
+          int destination = graph.getTarget(i);
+          if (index[destination] == UNVISITED) { // go deeper, as the recursive version would
+            index[destination] = nextIndex;
+            low[destination] = nextIndex++;
+            stack[top++] = destination;
+            isOnStack[destination] = true;
+            path[depth] = destination;
+            cursors[depth++] = graph.getRowStart(destination);
+          } else if (isOnStack[destination]) {
+            low[vertex] = Math.min(low[vertex], index[destination]);
+          }
+          continue;
+        }
+
+        depth--;
+        if (low[vertex] == index[vertex]) { // the vertex is the first of its component to be found
+          int member;
+          do {
+            member = stack[--top];
+            isOnStack[member] = false;
+            components[member] = found;
+          } while (member != vertex);
+          found++;
+        }
+        if (depth > 0) {
+          int parent = path[depth - 1];
+          low[parent] = Math.min(low[parent], low[vertex]);
+        }
+      }
+    }
+
+    // Tarjan's algorithm completes sink components first, so reverse the numbering
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      components[vertex] = found - 1 - components[vertex];
+    }
+    componentCount = found;
+
+    // group the verticies by component, in ascending order within each component
+    memberOffsets = new int[componentCount + 1];
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      memberOffsets[components[vertex] + 1]++;
+    }
+    for (int component = 0; component < componentCount; component++) {
+      memberOffsets[component + 1] += memberOffsets[component];
+    }
+    members = new int[vertexCount];
+    int[] cursor = Arrays.copyOf(memberOffsets, componentCount);
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      members[cursor[components[vertex]]++] = vertex;
+    }
+    condensation = condense(graph);
+
+    int[] inDegrees = condensation.getInDegrees();
+    int sourceCount = 0;
+    int[] sources = new int[componentCount];
+    for (int component = 0; component < componentCount; component++) {
+      if (inDegrees[component] == 0) {
+        sources[sourceCount++] = component;
+      }
+    }
+    sourceComponents = Arrays.copyOf(sources, sourceCount);
+  }
+
+  /**
+   * Builds the graph of the components, with an edge between two components when any of their
+   * members have an edge between them. The rows are counted in a first pass over the members of
+   * each component and written in a second, so no buffer of every edge is needed, and they are kept
+   * in the same storage as the graph.
+   *
+   * @param graph the graph.
+   * @return the adjacency of the components.
+   */
+  private CompressedSparseRow condense(CompressedSparseRow graph) {
+    AdjacencyStorage storage = graph.getStorage();
+    int[] lastSeen = new int[componentCount]; // the component whose row last had each target, + 1
+
+    IntStore offsets = storage.allocate(componentCount + 1);
+    int edgeCount = 0;
+    for (int component = 0; component < componentCount; component++) {
+      edgeCount += writeRow(graph, component, lastSeen, null, edgeCount);
+      offsets.set(component + 1, edgeCount);
+    }
+
+    Arrays.fill(lastSeen, 0);
+    IntStore targets = storage.allocate(edgeCount);
+    for (int component = 0; component < componentCount; component++) {
+      int rowStart = offsets.get(component);
+      writeRow(graph, component, lastSeen, targets, rowStart);
+      targets.sort(rowStart, offsets.get(component + 1));
+    }
+    return new CompressedSparseRow(storage, offsets, targets);
+  }
+
+  /**
+   * Finds the other components the members of a component have edges to, each once.
+   *
+   * @param graph the graph.
+   * @param component the component.
+   * @param lastSeen the component whose row last had each target, plus one.
+   * @param targets where to write the row, or null to only count it.
+   * @param rowStart the index in the targets to write the row from.
+   * @return the number of components in the row.
+   */
+  private int writeRow(
+      CompressedSparseRow graph, int component, int[] lastSeen, IntStore targets, int rowStart) {
+    int size = 0;
+    for (int m = memberOffsets[component]; m < memberOffsets[component + 1]; m++) {
+      int vertex = members[m];
+      for (int i = graph.getRowStart(vertex); i < graph.getRowEnd(vertex); i++) {
+        int destination = components[graph.getTarget(i)];
+        if (destination != component && lastSeen[destination] != component + 1) {
+          lastSeen[destination] = component + 1;
+          if (targets != null) {
+            targets.set(rowStart + size, destination);
+          }
+          size++;
+        }
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of strongly connected components.
+   *
+   * @return the component count.
+   */
+  public int getComponentCount() {
+    return componentCount;
+  }
+
+  /**
+   * Gets the component a vertex belongs to.
+   *
+   * @param vertex the vertex.
+   * @return the number of its component, in topological order.
+   */
+  public int getComponent(int vertex) {
+    return components[vertex];
+  }
+
+  /**
+   * Gets the condensation of the graph, the acyclic graph of the components.
+   *
+   * @return the adjacency of the components.
+   */
+  public CompressedSparseRow getCondensation() {
+    return condensation;
+  }
+
+  /**
+   * Gets the number of verticies in a component.
+   *
+   * @param component the component.
+   * @return the member count.
+   */
+  public int getMemberCount(int component) {
+    return memberOffsets[component + 1] - memberOffsets[component];
+  }
+
+  /**
+   * Gets a vertex of a component.
+   *
+   * @param component the component.
+   * @param index the index of the vertex within the component, the verticies are in ascending
+   *     order.
+   * @return the vertex.
+   */
+  public int getMember(int component, int index) {
+    return members[memberOffsets[component] + index];
+  }
+
+  /**
+   * Checks if no edges come into a component from other components.
+   *
+   * @param component the component.
+   * @return true if the component is a source of the condensation, false otherwise.
+   */
+  public boolean isSourceComponent(int component) {
+    return Arrays.binarySearch(sourceComponents, component) >= 0;
+  }
+
+  /**
+   * Gets the components that no edges come into from other components.
+   *
+   * @return the source components, in topological order.
+   */
+  public int[] getSourceComponents() {
+    return sourceComponents.clone();
+  }
+
+  /**
+   * Gets the number of bytes taken by the components, their members and the condensation.
+   *
+   * @return the size in bytes.
+   */
+  public long getMemoryUsage() {
+    long ints = components.length + memberOffsets.length + members.length + sourceComponents.length;
+    return ints * Integer.BYTES + condensation.getMemoryUsage();
+  }
+}
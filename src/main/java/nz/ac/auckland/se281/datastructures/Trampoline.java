@@ -0,0 +1,61 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.function.Supplier;
+
+/**
+ * A step of a recursive computation that runs in constant stack space. Instead of calling itself, a
+ * recursive method returns a trampoline holding the next call, and {@link #run()} makes the calls
+ * one after another in a loop, so the depth of the recursion is only limited by the heap.
+ *
+ * @param <R> The type of the result of the computation.
+ */
+public final class Trampoline<R> {
+  private final R result;
+  private final Supplier<Trampoline<R>> next;
+
+  /**
+   * Creates a step that either holds the result or the next call to make.
+   *
+   * @param result the result, if the computation is complete.
+   * @param next the next call to make, or null if the computation is complete.
+   */
+  private Trampoline(R result, Supplier<Trampoline<R>> next) {
+    this.result = result;
+    this.next = next;
+  }
+
+  /**
+   * Creates the final step of a computation.
+   *
+   * @param <R> The type of the result of the computation.
+   * @param result the result of the computation.
+   * @return the completed step.
+   */
+  public static <R> Trampoline<R> done(R result) {
+    return new Trampoline<>(result, null);
+  }
+
+  /**
+   * Creates a step that continues with another (usually recursive) call.
+   *
+   * @param <R> The type of the result of the computation.
+   * @param next the call to make next.
+   * @return the step.
+   */
+  public static <R> Trampoline<R> call(Supplier<Trampoline<R>> next) {
+    return new Trampoline<>(null, next);
+  }
+
+  /**
+   * Makes every remaining call of the computation in a loop, and returns its result.
+   *
+   * @return the result of the computation.
+   */
+  public R run() {
+    Trampoline<R> step = this;
+    while (step.next != null) {
+      step = step.next.get();
+    }
+    return step.result;
+  }
+}
@@ -0,0 +1,509 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Builds the transitive closure of a graph, the graph with an edge a -> b wherever the original
+ * graph has a path of one or more edges from a to b.
+ *
+ * <p>The closure is found on the condensation of the graph. Every component keeps the set of the
+ * components it reaches, which is the union of its children and their sets. Components are filled
+ * in by their height, the length of the longest path from them to a sink, starting from the sinks:
+ * the children of a component are all lower, so every component of a height is independent of the
+ * others and each height is filled in parallel across a {@link ForkJoinPool}.
+ *
+ * <p>A set is kept as a sorted array of components while that is smaller than a bitset of every
+ * component, and as a bitset once it is not, so a sparse closure never costs a bitset per
+ * component. Components without children share one empty set, and the set of a component is
+ * dropped as soon as its last parent has been filled, so only the sets between the filled and the
+ * unfilled components are kept at once.
+ *
+ * <p>Every member of a component has the same row in the closure, the members of each component
+ * it reaches, and its own component when that has a cycle. The components are filled twice, first
+ * to count the rows and lay out the closure, then to write each row straight into its place once
+ * per component, and copy it to the other members.
+ */
+public final class TransitiveClosure {
+  private static final int[] NO_COMPONENTS = new int[0];
+
+  private final StronglyConnectedComponents components;
+  private final CompressedSparseRow graph;
+  private final ForkJoinPool pool;
+
+  private final CompressedSparseRow condensation;
+  private final int[] parentCounts;
+  private final int[][] sparseReached;
+  private final long[][] denseReached;
+  private final boolean[] isCyclic;
+  private final ArrayDeque<Scratch> idleScratch = new ArrayDeque<>();
+
+  private AtomicIntegerArray unfilledParents;
+
+  /**
+   * Creates the builder of the closure of a graph.
+   *
+   * @param components the strongly connected components of the graph.
+   * @param graph the graph.
+   * @param pool the pool to fill in components and rows on.
+   */
+  public TransitiveClosure(
+      StronglyConnectedComponents components, CompressedSparseRow graph, ForkJoinPool pool) {
+    this.components = components;
+    this.graph = graph;
+    this.pool = pool;
+    this.condensation = components.getCondensation();
+    this.parentCounts = condensation.getInDegrees();
+    this.sparseReached = new int[components.getComponentCount()][];
+    this.denseReached = new long[components.getComponentCount()][];
+    this.isCyclic = new boolean[components.getComponentCount()];
+  }
+
+  /**
+   * Builds the closure, in the same storage as the graph.
+   *
+   * @return the adjacency of the closure.
+   * @throws IllegalStateException If the closure has more edges than a CSR structure can hold.
+   */
+  public CompressedSparseRow build() {
+    int componentCount = components.getComponentCount();
+    for (int component = 0; component < componentCount; component++) {
+      int first = components.getMember(component, 0);
+      isCyclic[component] =
+          components.getMemberCount(component) > 1 || graph.hasEdge(first, first);
+    }
+
+    // group the components by height, children always come after their parents in topological
+    // order, so walking backwards finds the height of every child first
+    int[] heights = new int[componentCount];
+    int maxHeight = -1;
+    for (int component = componentCount - 1; component >= 0; component--) {
+      int height = 0;
+      for (int i = condensation.getRowStart(component);
+          i < condensation.getRowEnd(component);
+          i++) {
+        height = Math.max(height, heights[condensation.getTarget(i)] + 1);
+      }
+      heights[component] = height;
+      maxHeight = Math.max(maxHeight, height);
+    }
+    int[] levelOffsets = new int[maxHeight + 2];
+    for (int component = 0; component < componentCount; component++) {
+      levelOffsets[heights[component] + 1]++;
+    }
+    for (int height = 0; height <= maxHeight; height++) {
+      levelOffsets[height + 1] += levelOffsets[height];
+    }
+    int[] levels = new int[componentCount];
+    int[] cursor = levelOffsets.clone();
+    for (int component = 0; component < componentCount; component++) {
+      levels[cursor[heights[component]]++] = component;
+    }
+
+    long[] rowSizes = new long[componentCount];
+    fillByHeight(
+        levels,
+        levelOffsets,
+        (component, scratch) -> rowSizes[component] = countRow(component, scratch));
+
+    int vertexCount = graph.getVertexCount();
+    AdjacencyStorage storage = graph.getStorage();
+    IntStore offsets = storage.allocate(vertexCount + 1);
+    long edgeCount = 0;
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      offsets.set(vertex, (int) edgeCount);
+      edgeCount += rowSizes[components.getComponent(vertex)];
+      if (edgeCount > Integer.MAX_VALUE) {
+        throw new IllegalStateException("the transitive closure has more than 2^31 - 1 edges");
+      }
+    }
+    offsets.set(vertexCount, (int) edgeCount);
+
+    IntStore targets = storage.allocate((int) edgeCount);
+    fillByHeight(
+        levels,
+        levelOffsets,
+        (component, scratch) ->
+            writeRow(component, (int) rowSizes[component], scratch, offsets, targets));
+
+    return new CompressedSparseRow(storage, offsets, targets);
+  }
+
+  /**
+   * Fills in the set of every component from the sinks up, runs an action on each one once it is
+   * filled, and drops every set once nothing needs it.
+   *
+   * @param levels the components grouped by height.
+   * @param levelOffsets where each height starts in the levels.
+   * @param action the action to run on each filled component.
+   */
+  private void fillByHeight(int[] levels, int[] levelOffsets, RowAction action) {
+    unfilledParents = new AtomicIntegerArray(parentCounts);
+    for (int height = 0; height + 1 < levelOffsets.length; height++) {
+      forEach(
+          levelOffsets[height],
+          levelOffsets[height + 1],
+          (from, to) -> {
+            Scratch scratch = borrowScratch();
+            try {
+              for (int i = from; i < to; i++) {
+                int component = levels[i];
+                fillReached(component, scratch);
+                action.run(component, scratch);
+                release(component);
+              }
+            } finally {
+              returnScratch(scratch);
+            }
+          });
+    }
+  }
+
+  /**
+   * Fills in the set of the components a component reaches, from its children.
+   *
+   * @param component the component, whose children have all been filled in.
+   * @param scratch the scratch space of the thread.
+   */
+  private void fillReached(int component, Scratch scratch) {
+    int start = condensation.getRowStart(component);
+    int end = condensation.getRowEnd(component);
+    if (start == end) {
+      sparseReached[component] = NO_COMPONENTS;
+      return;
+    }
+
+    boolean hasDenseChild = false;
+    for (int i = start; i < end && !hasDenseChild; i++) {
+      hasDenseChild = denseReached[condensation.getTarget(i)] != null;
+    }
+    if (hasDenseChild) { // the union is at least as large as the child, so it is dense too
+      long[] row = new long[wordCount(components.getComponentCount())];
+      for (int i = start; i < end; i++) {
+        int child = condensation.getTarget(i);
+        row[child >>> 6] |= 1L << child;
+        long[] childRow = denseReached[child];
+        if (childRow != null) {
+          for (int word = 0; word < row.length; word++) {
+            row[word] |= childRow[word];
+          }
+        } else {
+          for (int other : sparseReached[child]) {
+            row[other >>> 6] |= 1L << other;
+          }
+        }
+      }
+      denseReached[component] = row;
+      return;
+    }
+
+    // merge the children and their sets in the bitset of the scratch space, listing each new one
+    int count = 0;
+    for (int i = start; i < end; i++) {
+      int child = condensation.getTarget(i);
+      count = scratch.addComponent(child, count);
+      for (int other : sparseReached[child]) {
+        count = scratch.addComponent(other, count);
+      }
+    }
+    int[] reached = scratch.componentIds;
+    for (int i = 0; i < count; i++) {
+      scratch.componentBits[reached[i] >>> 6] = 0;
+    }
+
+    if ((long) count * Integer.SIZE <= components.getComponentCount()) {
+      int[] row = Arrays.copyOf(reached, count);
+      Arrays.sort(row);
+      sparseReached[component] = row;
+    } else {
+      long[] row = new long[wordCount(components.getComponentCount())];
+      for (int i = 0; i < count; i++) {
+        row[reached[i] >>> 6] |= 1L << reached[i];
+      }
+      denseReached[component] = row;
+    }
+  }
+
+  /**
+   * Tells the children of a filled component that one more parent is done with them, dropping the
+   * set of each child whose parents are all filled, and the set of the component if it has no
+   * parents.
+   *
+   * @param component the filled component.
+   */
+  private void release(int component) {
+    for (int i = condensation.getRowStart(component); i < condensation.getRowEnd(component); i++) {
+      int child = condensation.getTarget(i);
+      if (unfilledParents.decrementAndGet(child) == 0) {
+        sparseReached[child] = null;
+        denseReached[child] = null;
+      }
+    }
+    if (parentCounts[component] == 0) {
+      sparseReached[component] = null;
+      denseReached[component] = null;
+    }
+  }
+
+  /**
+   * Lists the components whose members make up the row of a component: every component it
+   * reaches, and itself when it has a cycle.
+   *
+   * @param component the filled component.
+   * @param scratch the scratch space of the thread, whose component ids receive the list.
+   * @return the number of components listed.
+   */
+  private int listRowComponents(int component, Scratch scratch) {
+    int count;
+    int[] listed;
+    long[] dense = denseReached[component];
+    if (dense == null) {
+      int[] sparse = sparseReached[component];
+      count = sparse.length;
+      listed = scratch.getComponentIds(count + 1);
+      System.arraycopy(sparse, 0, listed, 0, count);
+    } else {
+      count = 0;
+      for (long bits : dense) {
+        count += Long.bitCount(bits);
+      }
+      listed = scratch.getComponentIds(count + 1);
+      count = 0;
+      for (int word = 0; word < dense.length; word++) {
+        for (long bits = dense[word]; bits != 0; bits &= bits - 1) {
+          listed[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+        }
+      }
+    }
+    if (isCyclic[component]) {
+      listed[count++] = component;
+    }
+    return count;
+  }
+
+  /**
+   * Counts the edges in the row of each member of a component.
+   *
+   * @param component the filled component.
+   * @param scratch the scratch space of the thread.
+   * @return the row size.
+   */
+  private long countRow(int component, Scratch scratch) {
+    int count = listRowComponents(component, scratch);
+    long size = 0;
+    for (int i = 0; i < count; i++) {
+      size += components.getMemberCount(scratch.componentIds[i]);
+    }
+    return size;
+  }
+
+  /**
+   * Writes the row of every member of a component into the targets of the closure. A small row is
+   * sorted directly, a large one is sorted through a bitset of verticies.
+   *
+   * @param component the filled component.
+   * @param size the row size.
+   * @param scratch the scratch space of the thread.
+   * @param offsets the row offsets of the closure.
+   * @param targets the targets of the closure.
+   */
+  private void writeRow(
+      int component, int size, Scratch scratch, IntStore offsets, IntStore targets) {
+    int count = listRowComponents(component, scratch);
+    int[] listed = scratch.componentIds;
+    int start = offsets.get(components.getMember(component, 0));
+    int write = start;
+
+    if ((long) size * Integer.SIZE <= graph.getVertexCount()) {
+      int[] row = scratch.getVertexIds(size);
+      int length = 0;
+      for (int i = 0; i < count; i++) {
+        int other = listed[i];
+        for (int j = 0; j < components.getMemberCount(other); j++) {
+          row[length++] = components.getMember(other, j);
+        }
+      }
+      Arrays.sort(row, 0, length);
+      for (int i = 0; i < length; i++) {
+        targets.set(write++, row[i]);
+      }
+    } else {
+      long[] row = scratch.getVertexBits(graph.getVertexCount());
+      int lowWord = row.length;
+      int highWord = -1;
+      for (int i = 0; i < count; i++) {
+        int other = listed[i];
+        int memberCount = components.getMemberCount(other);
+        for (int j = 0; j < memberCount; j++) {
+          int vertex = components.getMember(other, j);
+          row[vertex >>> 6] |= 1L << vertex;
+        }
+        // the members are in ascending order
+        lowWord = Math.min(lowWord, components.getMember(other, 0) >>> 6);
+        highWord = Math.max(highWord, components.getMember(other, memberCount - 1) >>> 6);
+      }
+      for (int word = lowWord; word <= highWord; word++) {
+        for (long bits = row[word]; bits != 0; bits &= bits - 1) {
+          targets.set(write++, word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+        }
+        row[word] = 0;
+      }
+    }
+
+    // every other member has the same row
+    for (int i = 1; i < components.getMemberCount(component); i++) {
+      int offset = offsets.get(components.getMember(component, i));
+      for (int j = start; j < write; j++) {
+        targets.set(offset + j - start, targets.get(j));
+      }
+    }
+  }
+
+  /**
+   * Gets the number of longs in a bitset.
+   *
+   * @param bitCount the number of bits.
+   * @return the word count.
+   */
+  private static int wordCount(int bitCount) {
+    return (bitCount + Long.SIZE - 1) / Long.SIZE;
+  }
+
+  /**
+   * Takes an idle scratch space, or allocates one if every one is in use.
+   *
+   * @return the scratch space.
+   */
+  private Scratch borrowScratch() {
+    synchronized (idleScratch) {
+      Scratch scratch = idleScratch.poll();
+      if (scratch != null) {
+        return scratch;
+      }
+    }
+    return new Scratch(components.getComponentCount());
+  }
+
+  /**
+   * Gives a scratch space back, dropping it if there is already one per thread of the pool.
+   *
+   * @param scratch the scratch space, with every bit clear.
+   */
+  private void returnScratch(Scratch scratch) {
+    synchronized (idleScratch) {
+      if (idleScratch.size() < pool.getParallelism()) {
+        idleScratch.push(scratch);
+      }
+    }
+  }
+
+  /**
+   * Runs some work over a range of indices, in parallel when the pool has more than one thread.
+   *
+   * @param from the first index.
+   * @param to one past the last index.
+   * @param body the work to do on each part of the range.
+   */
+  private void forEach(int from, int to, RangeTask.RangeBody body) {
+    int parallelism = pool.getParallelism();
+    if (parallelism == 1 || to - from < 2) {
+      body.run(from, to);
+      return;
+    }
+    // a few parts per thread, so threads that finish early can steal the rest
+    int grain = Math.max(1, (to - from) / (parallelism * 4));
+    pool.invoke(new RangeTask(from, to, grain, body));
+  }
+
+  /** The work done on each component once its set is filled in. */
+  private interface RowAction {
+    /**
+     * Runs the work on a component.
+     *
+     * @param component the filled component.
+     * @param scratch the scratch space of the thread.
+     */
+    void run(int component, Scratch scratch);
+  }
+
+  /**
+   * The buffers a thread fills components and writes rows with, which are left clear after every
+   * use so they can be reused without clearing them in full.
+   */
+  private static final class Scratch {
+    private final long[] componentBits;
+    private int[] componentIds = new int[Long.SIZE];
+    private long[] vertexBits;
+    private int[] vertexIds = new int[Long.SIZE];
+
+    /**
+     * Creates the scratch space of a thread.
+     *
+     * @param componentCount the number of components.
+     */
+    private Scratch(int componentCount) {
+      this.componentBits = new long[wordCount(componentCount)];
+    }
+
+    /**
+     * Adds a component to the set being merged, if it is not already in it.
+     *
+     * @param component the component.
+     * @param count the number of components in the set.
+     * @return the new number of components in the set.
+     */
+    private int addComponent(int component, int count) {
+      long bit = 1L << component;
+      if ((componentBits[component >>> 6] & bit) != 0) {
+        return count;
+      }
+      componentBits[component >>> 6] |= bit;
+      if (count == componentIds.length) {
+        componentIds = Arrays.copyOf(componentIds, count * 2);
+      }
+      componentIds[count] = component;
+      return count + 1;
+    }
+
+    /**
+     * Gets the buffer of component ids, grown to hold some number of components.
+     *
+     * @param length the number of components.
+     * @return the buffer, of at least that length.
+     */
+    private int[] getComponentIds(int length) {
+      if (componentIds.length < length) {
+        componentIds = new int[Math.max(length, componentIds.length * 2)];
+      }
+      return componentIds;
+    }
+
+    /**
+     * Gets a buffer for the verticies of a row.
+     *
+     * @param size the row size.
+     * @return a buffer of at least that length.
+     */
+    private int[] getVertexIds(int size) {
+      if (vertexIds.length < size) {
+        vertexIds = new int[Math.max(size, vertexIds.length * 2)];
+      }
+      return vertexIds;
+    }
+
+    /**
+     * Gets a clear bitset of verticies, allocated on first use.
+     *
+     * @param vertexCount the number of verticies.
+     * @return the bitset.
+     */
+    private long[] getVertexBits(int vertexCount) {
+      if (vertexBits == null) {
+        vertexBits = new long[wordCount(vertexCount)];
+      }
+      return vertexBits;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+package nz.ac.auckland.se281.datastructures;
+
+/**
+ * Checks if a graph is transitive, that is for every edge a -> b the successors of b are a subset
+ * of the successors of a.
+ *
+ * <p>The successors of the vertex a being checked are marked in a bitset. Rows with few edges are
+ * checked by probing that bitset once per edge, while dense rows are kept as bitsets of their own
+ * and checked against it one 64-bit word at a time.
+ */
+public final class TransitivityChecker {
+  private final CompressedSparseRow graph;
+  private final long[][] denseRows;
+  private final long[] successors;
+
+  /**
+   * Creates a checker for a graph, building the bitsets of its dense rows.
+   *
+   * @param graph the graph to check.
+   */
+  public TransitivityChecker(CompressedSparseRow graph) {
+    int vertexCount = graph.getVertexCount();
+    int words = (vertexCount + Long.SIZE - 1) / Long.SIZE;
+    this.graph = graph;
+    this.successors = new long[words];
+    this.denseRows = new long[vertexCount][];
+
+    for (int vertex = 0; vertex < vertexCount; vertex++) {
+      // a row is dense once scanning its words is no slower than probing each of its edges
+      if ((long) graph.getOutDegree(vertex) * Long.SIZE >= vertexCount) {
+        long[] row = new long[words];
+        for (int i = graph.getRowStart(vertex); i < graph.getRowEnd(vertex); i++) {
+          int target = graph.getTarget(i);
+          row[target >>> 6] |= 1L << target;
+        }
+        denseRows[vertex] = row;
+      }
+    }
+  }
+
+  /**
+   * Checks if the graph is transitive, stopping at the first edge that breaks transitivity.
+   *
+   * @return true if the graph is transitive, false otherwise.
+   */
+  public boolean isTransitive() {
+    for (int vertexA = 0; vertexA < graph.getVertexCount(); vertexA++) {
+      int start = graph.getRowStart(vertexA);
+      int end = graph.getRowEnd(vertexA);
+
+      markSuccessors(start, end);
+      boolean isTransitive = successorsContainRowsOf(vertexA, start, end);
+      clearSuccessors(start, end);
+
+      if (!isTransitive) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks that the successors of every successor b of a vertex are marked in the bitset.
+   *
+   * @param vertexA the vertex whose successors are marked.
+   * @param start the start of the row of the vertex.
+   * @param end the end of the row of the vertex.
+   * @return true if the successors of every b are successors of a, false otherwise.
+   */
+  private boolean successorsContainRowsOf(int vertexA, int start, int end) {
+    for (int i = start; i < end; i++) {
+      int vertexB = graph.getTarget(i);
+      if (vertexB == vertexA) {
+        continue; // a row is always a subset of itself
+      }
+
+      long[] denseRow = denseRows[vertexB];
+      if (denseRow != null) {
+        for (int word = 0; word < denseRow.length; word++) {
+          if ((denseRow[word] & ~successors[word]) != 0) {
+            return false;
+          }
+        }
+      } else {
+        for (int j = graph.getRowStart(vertexB); j < graph.getRowEnd(vertexB); j++) {
+          int vertexC = graph.getTarget(j);
+          if ((successors[vertexC >>> 6] & (1L << vertexC)) == 0) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Marks the destinations of a row in the successor bitset.
+   *
+   * @param start the start of the row.
+   * @param end the end of the row.
+   */
+  private void markSuccessors(int start, int end) {
+    for (int i = start; i < end; i++) {
+      int target = graph.getTarget(i);
+      successors[target >>> 6] |= 1L << target;
+    }
+  }
+
+  /**
+   * Clears the destinations of a row from the successor bitset, leaving it empty again.
+   *
+   * @param start the start of the row.
+   * @param end the end of the row.
+   */
+  private void clearSuccessors(int start, int end) {
+    for (int i = start; i < end; i++) {
+      successors[graph.getTarget(i) >>> 6] = 0;
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package nz.ac.auckland.se281.datastructures;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * A dictionary that gives every vertex of a graph a dense integer id, so that graph algorithms can
+ * work on ints. Ids are assigned in ascending vertex order, so iterating ids from 0 visits the
+ * verticies in sorted order.
+ *
+ * <p>Verticies that are whole numbers (such as the ids in a DOT file) are ordered by their numeric
+ * value and come before every other vertex, the remaining verticies are ordered by {@code
+ * compareTo}.
+ *
+ * @param <T> The type of each vertex, that have a total ordering.
+ */
+public final class VertexDictionary<T extends Comparable<T>> {
+  private static final int MAX_NUMERIC_DIGITS = 18;
+
+  // the estimated bytes of a list slot, a hash map entry with its boxed id, and a table slot
+  private static final int ENTRY_BYTES = 8 + 32 + 16 + 8;
+  private static final int STRING_BYTES = 24 + 16;
+  private static final int OBJECT_BYTES = 16;
+
+  private final List<T> verticies;
+  private final HashMap<T, Integer> ids;
+  private volatile long memoryUsage = -1;
+
+  /**
+   * Creates a dictionary of the given verticies, ignoring duplicates.
+   *
+   * @param verticies the verticies to give ids to.
+   */
+  public VertexDictionary(Collection<T> verticies) {
+    this(sortUnique(verticies));
+  }
+
+  /**
+   * Creates a dictionary of verticies that are already unique and in dictionary order.
+   *
+   * @param sortedVerticies the verticies, in ascending order of id.
+   */
+  private VertexDictionary(ArrayList<T> sortedVerticies) {
+    this.verticies = sortedVerticies;
+    this.ids = new HashMap<>(sortedVerticies.size() * 2);
+    for (int id = 0; id < sortedVerticies.size(); id++) {
+      this.ids.put(sortedVerticies.get(id), id);
+    }
+  }
+
+  /**
+   * Creates a dictionary of verticies that are already unique and in dictionary order, such as the
+   * verticies of a saved dictionary, without sorting them again.
+   *
+   * @param <T> The type of each vertex, that have a total ordering.
+   * @param sortedVerticies the verticies, in ascending order of id.
+   * @return the dictionary.
+   * @throws IllegalArgumentException If the verticies are not unique and in dictionary order, as
+   *     lookups would then give the wrong ids.
+   */
+  static <T extends Comparable<T>> VertexDictionary<T> fromSorted(List<T> sortedVerticies) {
+    for (int id = 1; id < sortedVerticies.size(); id++) {
+      if (compare(sortedVerticies.get(id - 1), sortedVerticies.get(id)) >= 0) {
+        throw new IllegalArgumentException(
+            "vertex " + id + " is not after the vertex before it in dictionary order");
+      }
+    }
+    return new VertexDictionary<>(new ArrayList<>(sortedVerticies));
+  }
+
+  /**
+   * Compares two verticies in dictionary order.
+   *
+   * @param <T> The type of each vertex, that have a total ordering.
+   * @param a the first vertex.
+   * @param b the second vertex.
+   * @return a negative number, zero or a positive number as the first vertex comes before, is the
+   *     same as or comes after the second.
+   */
+  static <T extends Comparable<T>> int compare(T a, T b) {
+    String textA = a.toString();
+    String textB = b.toString();
+    boolean isNumericA = isWholeNumber(textA);
+    boolean isNumericB = isWholeNumber(textB);
+    if (isNumericA != isNumericB) {
+      return isNumericA ? -1 : 1; // numbers come before everything else
+    }
+    if (isNumericA) {
+      int order = Long.compare(Long.parseLong(textA), Long.parseLong(textB));
+      if (order != 0) {
+        return order;
+      }
+    }
+    return a.compareTo(b);
+  }
+
+  /**
+   * Removes duplicate verticies and sorts the rest into dictionary order. The numeric verticies are
+   * parsed once and sorted as packed longs of their value's rank and their index with a primitive
+   * sort, so no boxed index or comparator is needed. Only verticies with the same value but
+   * different text, such as "7" and "07", are compared as objects.
+   *
+   * @param <T> The type of each vertex, that have a total ordering.
+   * @param verticies the verticies to sort.
+   * @return the unique verticies in ascending order.
+   */
+  private static <T extends Comparable<T>> ArrayList<T> sortUnique(Collection<T> verticies) {
+    List<T> unique = new ArrayList<>(new LinkedHashSet<>(verticies));
+    int size = unique.size();
+
+    long[] values = new long[size];
+    int[] numericIndices = new int[size];
+    int numericCount = 0;
+    List<T> others = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      T vertex = unique.get(i);
+      String text = vertex.toString();
+      if (isWholeNumber(text)) {
+        values[numericCount] = Long.parseLong(text);
+        numericIndices[numericCount++] = i;
+      } else {
+        others.add(vertex);
+      }
+    }
+
+    // rank the distinct values, then sort the numeric verticies by rank, with ties in index order
+    long[] ranked = Arrays.copyOf(values, numericCount);
+    Arrays.parallelSort(ranked);
+    int rankCount = 0;
+    for (int k = 0; k < numericCount; k++) {
+      if (rankCount == 0 || ranked[rankCount - 1] != ranked[k]) {
+        ranked[rankCount++] = ranked[k];
+      }
+    }
+    long[] keys = new long[numericCount];
+    for (int k = 0; k < numericCount; k++) {
+      keys[k] = (long) Arrays.binarySearch(ranked, 0, rankCount, values[k]) << 32 | k;
+    }
+    Arrays.parallelSort(keys);
+
+    ArrayList<T> sorted = new ArrayList<>(size);
+    int runStart = 0;
+    for (int k = 0; k < numericCount; k++) {
+      sorted.add(unique.get(numericIndices[(int) keys[k]]));
+      if (k + 1 == numericCount || keys[k + 1] >>> 32 != keys[k] >>> 32) {
+        if (k > runStart) { // the same value written differently, so fall back to compareTo
+          sorted.subList(runStart, k + 1).sort(null);
+        }
+        runStart = k + 1;
+      }
+    }
+
+    others.sort(null); // numbers come before everything else
+    sorted.addAll(others);
+    return sorted;
+  }
+
+  /**
+   * Checks if a string is a whole number that fits in a long, such as "12" or "-3".
+   *
+   * @param text the string to check.
+   * @return true if the string is a whole number, false otherwise.
+   */
+  static boolean isWholeNumber(String text) {
+    int start = text.startsWith("-") ? 1 : 0;
+    int length = text.length() - start;
+    if (length == 0 || length > MAX_NUMERIC_DIGITS) {
+      return false;
+    }
+    for (int i = start; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < '0' || c > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the number of verticies in the dictionary.
+   *
+   * @return the number of verticies.
+   */
+  public int size() {
+    return verticies.size();
+  }
+
+  /**
+   * Finds the id of a vertex, and returns it.
+   *
+   * @param vertex the vertex to look up.
+   * @return the id of the vertex, or -1 if the vertex is not in the dictionary.
+   */
+  public int getId(T vertex) {
+    Integer id = ids.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Finds the vertex with the given id, and returns it.
+   *
+   * @param id the id of the vertex.
+   * @return the vertex.
+   */
+  public T getVertex(int id) {
+    return verticies.get(id);
+  }
+
+  /**
+   * Gets every vertex in the dictionary, in ascending order of id.
+   *
+   * @return an unmodifiable list of the verticies.
+   */
+  public List<T> getVerticies() {
+    return Collections.unmodifiableList(verticies);
+  }
+
+  /**
+   * Estimates the number of bytes taken by the dictionary and its verticies, from the typical sizes
+   * of the objects on a 64-bit JVM. It is worked out once and then remembered.
+   *
+   * @return the estimated size in bytes.
+   */
+  public long getMemoryUsage() {
+    if (memoryUsage < 0) {
+      long bytes = (long) verticies.size() * ENTRY_BYTES;
+      for (T vertex : verticies) {
+        bytes +=
+            vertex instanceof String ? STRING_BYTES + ((String) vertex).length() : OBJECT_BYTES;
+      }
+      memoryUsage = bytes;
+    }
+    return memoryUsage;
+  }
+}
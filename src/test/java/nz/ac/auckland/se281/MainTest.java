@@ -1,8 +1,49 @@
 package nz.ac.auckland.se281;
 
+import static nz.ac.auckland.se281.CliTest.NEW_LINE;
 import static nz.ac.auckland.se281.Command.*;
-
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import nz.ac.auckland.se281.datastructures.AdjacencyStorage;
+import nz.ac.auckland.se281.datastructures.Edge;
+import nz.ac.auckland.se281.datastructures.Graph;
+import nz.ac.auckland.se281.datastructures.GraphBuilder;
+import nz.ac.auckland.se281.datastructures.GraphSnapshot;
+import nz.ac.auckland.se281.datastructures.ParallelBreadthFirstSearch;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -13,6 +54,7 @@ import org.junit.runners.Suite.SuiteClasses;
   MainTest.Task2.class, // Uncomment this line when you start Task 2
   MainTest.Task3.class, // Uncomment this line when you start Task 3
   MainTest.YourTests.class, // Uncomment this line to run your own tests
+  MainTest.LibraryTests.class,
 })
 public class MainTest {
   public static class Task1 extends CliTest {
@@ -416,6 +458,25 @@ public class MainTest {
       assertContains("[0]");
     }
 
+    // equivalence classes are printed with whole numbers in numeric order, not as text
+    @Test
+    public void TY_01_equivalence_class_numeric_order() throws Exception {
+      final Path file = Path.of("testcases", "two_digit.txt");
+      try {
+        final StringBuilder dot = new StringBuilder("digraph two_digit {\n");
+        for (int source = 0; source < 12; source++) {
+          for (int destination = 0; destination < 12; destination++) {
+            dot.append(' ').append(source).append(" -> ").append(destination).append(";\n");
+          }
+        }
+        Files.writeString(file, dot.append("}\n"));
+        runCommands(OPEN_FILE, "two_digit.txt", COMPUTE_EQUIVALENCE, 5);
+        assertContains("[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11]");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
     @Test
     public void TY_01_G_iterative_BFS() throws Exception {
       runCommands(OPEN_FILE, "g.txt", GRAPH_SEARCH_IBFS);
@@ -518,5 +579,965 @@ public class MainTest {
       assertContains("Successfully opened graph from file i.txt");
       assertContains("[0, 1, 2, 3, 10, 11, 12, 13, 20, 21, 100, 101]");
     }
+
+    // verticies that are not numbers
+    @Test
+    public void TY_01_J_check_roots() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", LIST_ROOT_VERTICIES);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[a]");
+    }
+
+    @Test
+    public void TY_02_J_IBFS() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", GRAPH_SEARCH_IBFS);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[a, b, c, d]");
+    }
+
+    @Test
+    public void TY_03_J_IDFS() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", GRAPH_SEARCH_IDFS);
+      assertContains("Successfully opened graph from file j.txt");
+      assertContains("[a, b, d, c]");
+    }
+
+    @Test
+    public void TY_01_G_parallel_BFS() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", GRAPH_SEARCH_PBFS);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("[1, 3, 5, 6, 9, 11, 7, 2, 12, 4, 8, 10]");
+    }
+
+    @Test
+    public void TY_02_H_parallel_BFS() throws Exception {
+      runCommands(OPEN_FILE, "h.txt", GRAPH_SEARCH_PBFS);
+      assertContains("Successfully opened graph from file h.txt");
+      assertContains(
+          "[0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23,"
+              + " 24]");
+    }
+
+    @Test
+    public void TY_03_I_parallel_BFS() throws Exception {
+      runCommands(OPEN_FILE, "i.txt", GRAPH_SEARCH_PBFS);
+      assertContains("Successfully opened graph from file i.txt");
+      assertContains("[0, 1, 2, 3, 10, 11, 12, 13, 20, 21, 100, 101]");
+    }
+
+    @Test
+    public void TY_01_G_search_levels() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", GRAPH_SEARCH_LEVELS);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("Level 0: [1]");
+      assertContains("Level 1: [3, 5, 6, 9, 11]");
+      assertContains("Level 2: [2, 7, 12]");
+      assertContains("Level 3: [4, 8]");
+      assertContains("Level 4: [10]");
+      assertDoesNotContain("Level 5:");
+    }
+
+    @Test
+    public void TY_02_I_search_levels() throws Exception {
+      runCommands(OPEN_FILE, "i.txt", GRAPH_SEARCH_LEVELS);
+      assertContains("Successfully opened graph from file i.txt");
+      assertContains("Level 0: [0, 2, 10, 12, 20, 100]");
+      assertContains("Level 1: [1, 3, 11, 13, 21, 101]");
+    }
+
+    // DOT syntax outside the streaming subset falls back to the full parser
+    @Test
+    public void TY_01_dot_fallback() throws Exception {
+      final Path file = Path.of("testcases", "fallback.txt");
+      try {
+        Files.writeString(
+            file, "digraph fallback {\n 0 -> 1 [color=red];\n \"1\" -> 2;\n 2 -> {3 4};\n 5;\n}\n");
+        assertNull(StreamingDotParser.parse(file));
+
+        runCommands(OPEN_FILE, "fallback.txt", LIST_VERTICIES_EDGES, LIST_ROOT_VERTICIES);
+        assertContains("Successfully opened graph from file fallback.txt");
+        assertContains(
+            "Edges:"
+                + NEW_LINE
+                + "\t0 -> 1"
+                + NEW_LINE
+                + "\t1 -> 2"
+                + NEW_LINE
+                + "\t2 -> 3"
+                + NEW_LINE
+                + "\t2 -> 4"
+                + NEW_LINE);
+        assertContains("[0, 5]");
+        assertDoesNotContain("\"");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    // plain edge lists, with numeric and named verticies
+    @Test
+    public void TY_01_K_edge_list_roots() throws Exception {
+      runCommands(OPEN_FILE, "k.txt", LIST_ROOT_VERTICIES);
+      assertContains("Successfully opened graph from file k.txt");
+      assertContains("[1, 5]");
+    }
+
+    @Test
+    public void TY_02_K_edge_list_IBFS() throws Exception {
+      runCommands(OPEN_FILE, "k.txt", GRAPH_SEARCH_IBFS);
+      assertContains("Successfully opened graph from file k.txt");
+      assertContains("[1, 2, 3, 4, 5, 6]");
+    }
+
+    @Test
+    public void TY_01_L_edge_list_IDFS() throws Exception {
+      runCommands(OPEN_FILE, "l.txt", GRAPH_SEARCH_IDFS);
+      assertContains("Successfully opened graph from file l.txt");
+      assertContains("[a, b, d, c]");
+    }
+
+    @Test
+    public void TY_01_G_reachability() throws Exception {
+      runCommands(OPEN_FILE, "g.txt", CHECK_REACHABILITY, 1, 10, CHECK_REACHABILITY, 10, 1);
+      assertContains("Successfully opened graph from file g.txt");
+      assertContains("Vertex 10 is reachable from vertex 1");
+      assertContains("Vertex 1 is NOT reachable from vertex 10");
+    }
+
+    @Test
+    public void TY_02_J_reachability() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", CHECK_REACHABILITY, "a", "d", CHECK_REACHABILITY, "b", "c");
+      assertContains("Vertex d is reachable from vertex a");
+      assertContains("Vertex c is NOT reachable from vertex b");
+    }
+
+    // strongly connected components
+    @Test
+    public void TY_01_E_components() throws Exception {
+      runCommands(OPEN_FILE, "e.txt", LIST_COMPONENTS, LIST_ROOT_VERTICIES);
+      assertContains("Component 0: [3, 4] (source)");
+      assertContains("Component 2: [0] (source)");
+      assertContains("Component 3: [1]");
+      assertContains("[]");
+      assertDoesNotContain("Component 3: [1] (source)");
+    }
+
+    @Test
+    public void TY_02_J_components() throws Exception {
+      runCommands(OPEN_FILE, "j.txt", LIST_COMPONENTS);
+      assertContains("Component 0: [a] (source)");
+      assertContains("Component 3: [d]");
+      assertDoesNotContain("Component 3: [d] (source)");
+    }
+
+    // edits to the loaded graph
+    @Test
+    public void TY_01_D_remove_edge_breaks_symmetry() throws Exception {
+      runCommands(OPEN_FILE, "d.txt", REMOVE_EDGE, 1, 2, CHECK_SYMMETRY, CHECK_REFLEXIVITY);
+      assertContains("Removed edge 1 -> 2");
+      assertContains("The graph is NOT symmetric");
+      assertContains("The graph is reflexive");
+    }
+
+    @Test
+    public void TY_02_D_add_edge_restores_symmetry() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "d.txt",
+          REMOVE_EDGE,
+          1,
+          2,
+          ADD_EDGE,
+          1,
+          2,
+          CHECK_SYMMETRY,
+          CHECK_EQUIVALENCE,
+          ADD_EDGE,
+          1,
+          2);
+      assertContains("Added edge 1 -> 2");
+      assertContains("The graph is symmetric");
+      assertContains("The graph is an equivalence relation");
+      assertContains("Edge 1 -> 2 is already in the graph");
+    }
+
+    @Test
+    public void TY_03_J_edits() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "j.txt",
+          CHECK_ANTISYMMETRY,
+          ADD_EDGE,
+          "d",
+          "a",
+          ADD_EDGE,
+          "b",
+          "a",
+          CHECK_ANTISYMMETRY,
+          ADD_VERTEX,
+          "e",
+          LIST_ROOT_VERTICIES,
+          REMOVE_EDGE,
+          "e",
+          "a");
+      assertContains("The graph is antisymmetric");
+      assertContains("The graph is NOT antisymmetric");
+      assertContains("Added vertex e");
+      assertContains("[e]");
+      assertContains("Error: edge e -> a is not in the graph");
+    }
+
+    @Test
+    public void TY_04_A_edits_keep_dictionary_order() throws Exception {
+      runCommands(
+          OPEN_FILE,
+          "a.txt",
+          ADD_EDGE,
+          10,
+          0,
+          ADD_VERTEX,
+          7,
+          REMOVE_EDGE,
+          1,
+          3,
+          LIST_ROOT_VERTICIES,
+          LIST_VERTICIES_EDGES,
+          GRAPH_SEARCH_IBFS);
+      assertContains("[3, 7, 10]");
+      assertContains("\t5" + NEW_LINE + "\t7" + NEW_LINE + "\t10" + NEW_LINE);
+      assertDoesNotContain("\t1 -> 3");
+      assertContains("[3, 7, 10, 0, 1, 2, 4, 5]");
+    }
+
+    // snapshots are written to the testcases folder, so every test deletes its snapshot afterwards
+    @Test
+    public void TY_01_G_snapshot_round_trip() throws Exception {
+      final Path snapshot = Path.of("testcases", "g.snapshot");
+      try {
+        runCommands(
+            OPEN_FILE,
+            "g.txt",
+            SAVE_SNAPSHOT,
+            "g.snapshot",
+            OPEN_FILE,
+            "g.snapshot",
+            LIST_ROOT_VERTICIES,
+            CHECK_TRANSITIVITY,
+            GRAPH_SEARCH_IDFS);
+        assertContains("Successfully saved a snapshot of the graph to file g.snapshot");
+        assertContains("Successfully opened graph from file g.snapshot");
+        assertContains("[1]");
+        assertContains("The graph is NOT transitive");
+        assertContains("[1, 3, 5, 7, 6, 2, 4, 10, 8, 9, 11, 12]");
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_02_J_snapshot_round_trip() throws Exception {
+      final Path snapshot = Path.of("testcases", "j.snapshot");
+      try {
+        runCommands(
+            OPEN_FILE,
+            "j.txt",
+            SAVE_SNAPSHOT,
+            "j.snapshot",
+            OPEN_FILE,
+            "j.snapshot",
+            GRAPH_SEARCH_IBFS);
+        assertContains("Successfully opened graph from file j.snapshot");
+        assertContains("[a, b, c, d]");
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_03_corrupt_snapshot() throws Exception {
+      final Path snapshot = Path.of("testcases", "corrupt.snapshot");
+      System.setProperty(GraphSnapshot.VERIFY_PROPERTY, "true");
+      try {
+        runCommands(OPEN_FILE, "a.txt", SAVE_SNAPSHOT, "corrupt.snapshot");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        runCommands(OPEN_FILE, "corrupt.snapshot");
+        assertContains("Error: file 'corrupt.snapshot' could not be loaded");
+      } finally {
+        System.clearProperty(GraphSnapshot.VERIFY_PROPERTY);
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_04_truncated_snapshot() throws Exception {
+      final Path snapshot = Path.of("testcases", "truncated.snapshot");
+      try {
+        runCommands(OPEN_FILE, "a.txt", SAVE_SNAPSHOT, "truncated.snapshot");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+
+        runCommands(OPEN_FILE, "truncated.snapshot");
+        assertContains("Error: file 'truncated.snapshot' could not be loaded");
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_05_snapshot_does_not_overwrite_test_case() throws Exception {
+      final byte[] original = Files.readAllBytes(Path.of("testcases", "a.txt"));
+      runCommands(
+          OPEN_FILE, "b.txt", SAVE_SNAPSHOT, "a.txt", OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      assertContains("Error: file 'a.txt' is not a snapshot, so it was not overwritten");
+      assertContains("[0]");
+      assertArrayEquals(original, Files.readAllBytes(Path.of("testcases", "a.txt")));
+    }
+
+    @Test
+    public void TY_06_overwrite_mapped_snapshot() throws Exception {
+      final Path snapshot = Path.of("testcases", "mapped.snapshot");
+      System.setProperty(AdjacencyStorage.PROPERTY, "mapped");
+      try {
+        new GraphCalculator("g.txt", null).saveSnapshot("mapped.snapshot");
+        final GraphCalculator mapped = new GraphCalculator("mapped.snapshot", null);
+        // a smaller snapshot replaces the one that is still mapped
+        new GraphCalculator("a.txt", null).saveSnapshot("mapped.snapshot");
+        mapped.printBreadthFirstLevels();
+        mapped.printDepthFirstSearch();
+        assertContains("[1, 3, 5, 7, 6, 2, 4, 10, 8, 9, 11, 12]");
+
+        runCommands(OPEN_FILE, "mapped.snapshot", LIST_ROOT_VERTICIES);
+        assertContains("graph-calculator> Successfully opened graph from file mapped.snapshot");
+        assertContains("[0]");
+      } finally {
+        System.clearProperty(AdjacencyStorage.PROPERTY);
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_07_malformed_dot_file() throws Exception {
+      final Path file = Path.of("testcases", "malformed.txt");
+      try {
+        Files.writeString(file, "digraph malformed {\n 0 -> 1 [color=red];\n");
+        runCommands(OPEN_FILE, "malformed.txt", OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+        assertContains("Error: file 'malformed.txt' could not be loaded");
+        assertContains("[0]");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    @Test
+    public void TY_08_snapshot_with_invalid_target() throws Exception {
+      final Path snapshot = Path.of("testcases", "target.snapshot");
+      try {
+        runCommands(OPEN_FILE, "a.txt", SAVE_SNAPSHOT, "target.snapshot");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        // the last target is just before the checksum at the end of the file
+        final int lastTarget = bytes.length - Long.BYTES - Integer.BYTES;
+        bytes[lastTarget] = 0x7F;
+        Files.write(snapshot, bytes);
+
+        runCommands(OPEN_FILE, "target.snapshot");
+        assertContains("Error: file 'target.snapshot' could not be loaded");
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    @Test
+    public void TY_09_snapshot_with_corrupt_properties() throws Exception {
+      final Path snapshot = Path.of("testcases", "properties.snapshot");
+      try {
+        runCommands(OPEN_FILE, "e.txt", SAVE_SNAPSHOT, "properties.snapshot");
+        final byte[] bytes = Files.readAllBytes(snapshot);
+        // the properties are the third int after the magic number, reflexive in the lowest bit
+        bytes[Long.BYTES + 3 * Integer.BYTES - 1] ^= 1;
+        Files.write(snapshot, bytes);
+
+        runCommands(OPEN_FILE, "properties.snapshot", CHECK_REFLEXIVITY);
+        assertContains("Error: file 'properties.snapshot' could not be loaded");
+        assertDoesNotContain("The graph is");
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    // transitive closure
+    @Test
+    public void TY_01_J_closure() throws Exception {
+      final Path closure = Path.of("testcases", "j.closure");
+      try {
+        runCommands(
+            OPEN_FILE,
+            "j.txt",
+            CHECK_TRANSITIVITY,
+            SAVE_CLOSURE,
+            "j.closure",
+            OPEN_FILE,
+            "j.closure",
+            CHECK_TRANSITIVITY,
+            LIST_VERTICIES_EDGES);
+        assertContains("The graph is NOT transitive");
+        assertContains("Successfully saved the transitive closure of the graph to file j.closure");
+        assertContains("The graph is transitive");
+        assertContains("a -> d");
+      } finally {
+        Files.deleteIfExists(closure);
+      }
+    }
+
+    @Test
+    public void TY_02_E_closure() throws Exception {
+      final Path closure = Path.of("testcases", "e.closure");
+      try {
+        runCommands(
+            OPEN_FILE,
+            "e.txt",
+            SAVE_CLOSURE,
+            "e.closure",
+            OPEN_FILE,
+            "e.closure",
+            CHECK_TRANSITIVITY,
+            CHECK_REFLEXIVITY);
+        assertContains("The graph is transitive");
+        assertContains("The graph is reflexive");
+      } finally {
+        Files.deleteIfExists(closure);
+      }
+    }
+
+    // generated graphs
+    @Test
+    public void TY_01_generated_equivalence() throws Exception {
+      final Path file = Path.of("testcases", "generated_equivalence.txt");
+      try {
+        new GraphGenerator(GraphGenerator.Family.EQUIVALENCE, 12, 3, 281)
+            .write(file, GraphGenerator.Format.DOT);
+        runCommands(
+            OPEN_FILE, "generated_equivalence.txt", CHECK_EQUIVALENCE, COMPUTE_EQUIVALENCE, 5);
+        assertContains("Successfully opened graph from file generated_equivalence.txt");
+        assertContains("The graph is an equivalence relation");
+        assertContains("[4, 5, 6, 7]");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    @Test
+    public void TY_02_generated_layered() throws Exception {
+      final Path file = Path.of("testcases", "generated_layered.txt");
+      try {
+        new GraphGenerator(GraphGenerator.Family.LAYERED, 12, 3, 281)
+            .write(file, GraphGenerator.Format.EDGE_LIST);
+        runCommands(OPEN_FILE, "generated_layered.txt", LIST_ROOT_VERTICIES, CHECK_ANTISYMMETRY);
+        assertContains("[0, 1, 2, 3]");
+        assertContains("The graph is antisymmetric");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    @Test
+    public void TY_03_generated_isolated_verticies() throws Exception {
+      final Path file = Path.of("testcases", "generated_chains.txt");
+      try {
+        new GraphGenerator(GraphGenerator.Family.CHAIN, 4, 4, 281)
+            .write(file, GraphGenerator.Format.DOT);
+        runCommands(OPEN_FILE, "generated_chains.txt", LIST_ROOT_VERTICIES);
+        assertContains("[0, 1, 2, 3]");
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    // batch mode
+    @Test
+    public void TY_01_batch_matches_interactive() throws Exception {
+      final Main batch =
+          new Main(new Scanner("# roots of a\nOPEN_FILE a.txt\n\nLIST_ROOT_VERTICIES\n"));
+      assertEquals(Main.EXIT_SUCCESS, batch.runBatch());
+      assertContains("Successfully opened graph from file a.txt" + NEW_LINE + "[0]" + NEW_LINE);
+      assertDoesNotContain("graph-calculator> ");
+      assertDoesNotContain("Print usage");
+
+      runCommands(OPEN_FILE, "a.txt", LIST_ROOT_VERTICIES);
+      assertContains("graph-calculator> [0]");
+    }
+
+    @Test
+    public void TY_02_batch_failure() throws Exception {
+      final Main batch =
+          new Main(new Scanner("OPEN_FILE missing.txt\nOPEN_FILE b.txt\nCHECK_SYMMETRY\nEXIT\n"));
+      assertEquals(Main.EXIT_FAILURE, batch.runBatch());
+      assertContains("Error: file 'missing.txt' not found in `testcases` folder");
+      assertContains("The graph is NOT symmetric");
+
+      runCommands(OPEN_FILE, "missing.txt");
+      assertContains("graph-calculator> Error: file 'missing.txt' not found");
+    }
+  }
+
+  /** Tests of the graph library and the services around it, that do not run the interface. */
+  public static class LibraryTests {
+    /** Timeout if a test runs longer than 10 seconds, such as a load that is never shared. */
+    @Rule public Timeout timeout = new Timeout(10, TimeUnit.SECONDS);
+
+    // adjacency storage
+    private static Graph<String> buildRandomGraph(final AdjacencyStorage storage) {
+      final Random random = new Random(281);
+      final GraphBuilder<String> builder = new GraphBuilder<String>().setStorage(storage);
+      for (int vertex = 0; vertex < 300; vertex++) {
+        builder.addVertex(String.valueOf(vertex));
+      }
+      for (int edge = 0; edge < 900; edge++) {
+        // mostly forward edges, so the graph has roots as well as cycles
+        final int source = random.nextInt(300);
+        final int destination =
+            random.nextInt(10) == 0 ? random.nextInt(300) : source + random.nextInt(300 - source);
+        builder.addEdge(String.valueOf(source), String.valueOf(destination));
+      }
+      return builder.build();
+    }
+
+    private static void assertSameAnswers(
+        final Graph<String> expected, final Graph<String> actual) {
+      assertEquals(expected.sortEdges(), actual.sortEdges());
+      assertEquals(expected.getRoots(), actual.getRoots());
+      assertEquals(expected.isReflexive(), actual.isReflexive());
+      assertEquals(expected.isSymmetric(), actual.isSymmetric());
+      assertEquals(expected.isAntiSymmetric(), actual.isAntiSymmetric());
+      assertEquals(expected.isTransitive(), actual.isTransitive());
+      assertEquals(expected.iterativeBreadthFirstSearch(), actual.iterativeBreadthFirstSearch());
+      assertEquals(expected.iterativeDepthFirstSearch(), actual.iterativeDepthFirstSearch());
+      assertEquals(expected.parallelBreadthFirstSearch(), actual.parallelBreadthFirstSearch());
+      assertEquals(
+          expected.breadthFirstLevels().getLevels(), actual.breadthFirstLevels().getLevels());
+      assertEquals(
+          expected.getStronglyConnectedComponents(), actual.getStronglyConnectedComponents());
+      assertEquals(expected.getCondensation().sortEdges(), actual.getCondensation().sortEdges());
+      assertEquals(
+          expected.getTransitiveClosure().sortEdges(), actual.getTransitiveClosure().sortEdges());
+      for (int vertex = 0; vertex < 300; vertex += 7) {
+        assertEquals(
+            expected.isReachable("0", String.valueOf(vertex)),
+            actual.isReachable("0", String.valueOf(vertex)));
+      }
+    }
+
+    @Test
+    public void TY_01_direct_storage() throws Exception {
+      assertSameAnswers(
+          buildRandomGraph(AdjacencyStorage.HEAP), buildRandomGraph(AdjacencyStorage.DIRECT));
+    }
+
+    @Test
+    public void TY_02_mapped_storage() throws Exception {
+      assertSameAnswers(
+          buildRandomGraph(AdjacencyStorage.HEAP), buildRandomGraph(AdjacencyStorage.MAPPED));
+    }
+
+    @Test
+    public void TY_03_snapshot_mapped_in_place() throws Exception {
+      final Path snapshot = Path.of("testcases", "storage.snapshot");
+      try {
+        final Graph<String> heap = buildRandomGraph(AdjacencyStorage.HEAP);
+        GraphSnapshot.write(heap, snapshot, true);
+        for (final AdjacencyStorage storage : AdjacencyStorage.values()) {
+          System.setProperty(AdjacencyStorage.PROPERTY, storage.name());
+          try {
+            assertSameAnswers(heap, GraphSnapshot.read(snapshot));
+          } finally {
+            System.clearProperty(AdjacencyStorage.PROPERTY);
+          }
+        }
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
+
+    // parallel breadth first search
+    @Test
+    public void TY_01_parallel_BFS_matches_iterative() throws Exception {
+      final Random random = new Random(281);
+      final GraphBuilder<String> builder = new GraphBuilder<>();
+      // layers of 1, 1000, 20000 and 20000 vertices, with random edges from each layer to the next
+      // and a few back to the one before, so the search has a few very wide levels
+      final int[] layerStarts = {0, 1, 1001, 21_001, 41_001};
+      final int[] edgesPerVertex = {1000, 20, 2, 0};
+      for (int layer = 0; layer < edgesPerVertex.length; layer++) {
+        for (int vertex = layerStarts[layer]; vertex < layerStarts[layer + 1]; vertex++) {
+          builder.addVertex(String.valueOf(vertex));
+          for (int edge = 0; edge < edgesPerVertex[layer]; edge++) {
+            final int toLayer = random.nextInt(50) == 0 && layer > 1 ? layer - 1 : layer + 1;
+            final int layerSize = layerStarts[toLayer + 1] - layerStarts[toLayer];
+            final int destination = layerStarts[toLayer] + random.nextInt(layerSize);
+            builder.addEdge(String.valueOf(vertex), String.valueOf(destination));
+          }
+        }
+      }
+      final Graph<String> graph = builder.build();
+      final List<String> expected = graph.iterativeBreadthFirstSearch();
+      assertEquals(41_001, expected.size());
+
+      // several threads, with a threshold low enough that every level is expanded in parallel, and
+      // with the default threshold, which the widest levels of this graph are above
+      final ForkJoinPool pool = new ForkJoinPool(4);
+      try {
+        assertEquals(expected, graph.parallelBreadthFirstSearch(pool, 1));
+        assertEquals(
+            expected,
+            graph.parallelBreadthFirstSearch(
+                pool, ParallelBreadthFirstSearch.DEFAULT_PARALLEL_THRESHOLD));
+      } finally {
+        pool.shutdown();
+      }
+    }
+
+    // recursive searches of a chain deeper than the call stack
+    @Test
+    public void TY_01_recursive_searches_of_deep_chain() throws Exception {
+      final GraphBuilder<Integer> builder = new GraphBuilder<>();
+      for (int vertex = 0; vertex < 200_000; vertex++) {
+        builder.addEdge(vertex, vertex + 1);
+        if (vertex % 1000 == 0) {
+          builder.addEdge(vertex, vertex + 500); // a shortcut, so the two orders differ
+        }
+      }
+      final Graph<Integer> graph = builder.build();
+
+      final List<Integer> breadthFirst = graph.iterativeBreadthFirstSearch();
+      final List<Integer> depthFirst = graph.iterativeDepthFirstSearch();
+      assertEquals(200_001, breadthFirst.size());
+      assertNotEquals(breadthFirst, depthFirst);
+      assertEquals(breadthFirst, graph.recursiveBreadthFirstSearch());
+      assertEquals(depthFirst, graph.recursiveDepthFirstSearch());
+    }
+
+    // transitive closure
+    private static void assertClosureOf(final Graph<String> graph) {
+      // the closure has an edge to every vertex a search along one or more edges reaches
+      final Map<String, List<String>> children = new HashMap<>();
+      for (final Edge<String> edge : graph.sortEdges()) {
+        children
+            .computeIfAbsent(edge.getSource(), source -> new ArrayList<>())
+            .add(edge.getDestination());
+      }
+      final Set<Edge<String>> expected = new HashSet<>();
+      for (final String source : graph.sortVertices()) {
+        final ArrayDeque<String> queue =
+            new ArrayDeque<>(children.getOrDefault(source, List.of()));
+        final Set<String> reached = new HashSet<>(queue);
+        while (!queue.isEmpty()) {
+          for (final String next : children.getOrDefault(queue.poll(), List.of())) {
+            if (reached.add(next)) {
+              queue.add(next);
+            }
+          }
+        }
+        for (final String destination : reached) {
+          expected.add(new Edge<>(source, destination));
+        }
+      }
+      assertEquals(expected, new HashSet<>(graph.getTransitiveClosure().sortEdges()));
+    }
+
+    @Test
+    public void TY_01_closure_of_dense_graph() throws Exception {
+      assertClosureOf(buildRandomGraph(AdjacencyStorage.HEAP));
+    }
+
+    @Test
+    public void TY_02_closure_of_sparse_graph() throws Exception {
+      // many small clusters, so most components reach only a few others
+      final Random random = new Random(281);
+      final GraphBuilder<String> builder = new GraphBuilder<>();
+      for (int vertex = 0; vertex < 4000; vertex++) {
+        builder.addVertex(String.valueOf(vertex));
+        final int cluster = vertex - vertex % 8;
+        for (int edge = random.nextInt(3); edge > 0; edge--) {
+          builder.addEdge(String.valueOf(vertex), String.valueOf(cluster + random.nextInt(8)));
+        }
+      }
+      assertClosureOf(builder.build());
+    }
+
+    @Test
+    public void TY_03_closure_of_disjoint_edges() throws Exception {
+      // a bitset of every component per component would take 5 GB here
+      final GraphBuilder<String> builder = new GraphBuilder<>();
+      for (int vertex = 0; vertex < 200_000; vertex += 2) {
+        builder.addEdge(String.valueOf(vertex), String.valueOf(vertex + 1));
+      }
+      final Graph<String> closure = builder.build().getTransitiveClosure();
+      assertEquals(100_000, closure.sortEdges().size());
+      assertTrue(closure.isTransitive());
+    }
+
+    // generated graphs
+    @Test
+    public void TY_01_generator_is_deterministic() throws Exception {
+      final Path first = Path.of("testcases", "generated_first.txt");
+      final Path second = Path.of("testcases", "generated_second.txt");
+      try {
+        new GraphGenerator(GraphGenerator.Family.RMAT, 100, 400, 281)
+            .write(first, GraphGenerator.Format.EDGE_LIST);
+        new GraphGenerator(GraphGenerator.Family.RMAT, 100, 400, 281)
+            .write(second, GraphGenerator.Format.EDGE_LIST);
+        assertEquals("the same seed generated different files", -1, Files.mismatch(first, second));
+      } finally {
+        Files.deleteIfExists(first);
+        Files.deleteIfExists(second);
+      }
+    }
+
+    // diagnostics of the loaded graph
+    @Test
+    public void TY_01_load_echoes_to_diagnostics() throws Exception {
+      final StringWriter diagnostics = new StringWriter();
+      new GraphCalculator("a.txt", diagnostics);
+      assertEquals(
+          String.join(
+              NEW_LINE,
+              "0",
+              "1",
+              "2",
+              "3",
+              "4",
+              "5",
+              "0 --> 1",
+              "0 --> 2",
+              "1 --> 3",
+              "1 --> 4",
+              "1 --> 5",
+              ""),
+          diagnostics.toString());
+    }
+
+    @Test
+    public void TY_02_default_load_prints_nothing() throws Exception {
+      final PrintStream systemOut = System.out;
+      final ByteArrayOutputStream printed = new ByteArrayOutputStream();
+      System.setOut(new PrintStream(printed, true, StandardCharsets.UTF_8));
+      try {
+        new GraphCalculator("a.txt");
+        new GraphCalculator("b.txt", null);
+      } finally {
+        System.setOut(systemOut);
+      }
+      assertEquals("", printed.toString(StandardCharsets.UTF_8));
+    }
+
+    // cache of loaded graphs
+    @Test
+    public void TY_01_cache_reopen() throws Exception {
+      final GraphCache cache = new GraphCache(1 << 20);
+      new GraphCalculator("a.txt", null, cache);
+      new GraphCalculator("b.txt", null, cache);
+      new GraphCalculator("a.txt", null, cache);
+      assertEquals(2, cache.getMissCount());
+      assertEquals(1, cache.getHitCount());
+      assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void TY_02_cache_evicts_least_recently_used() throws Exception {
+      final GraphCache cache = new GraphCache(1 << 20);
+      new GraphCalculator("a.txt", null, cache);
+      final long budget = cache.getUsage();
+
+      final GraphCache small = new GraphCache(budget);
+      new GraphCalculator("a.txt", null, small);
+      new GraphCalculator("a.txt", null, small);
+      new GraphCalculator("b.txt", null, small); // b.txt is larger than the budget
+      new GraphCalculator("a.txt", null, small);
+      assertEquals(2, small.getHitCount());
+      assertEquals(1, small.size());
+      assertTrue("the cache should stay within its budget", small.getUsage() <= budget);
+    }
+
+    @Test
+    public void TY_03_cache_reloads_changed_file() throws Exception {
+      final Path file = Path.of("testcases", "cached.txt");
+      try {
+        final GraphCache cache = new GraphCache(1 << 20);
+        Files.writeString(file, "1 2\n");
+        new GraphCalculator("cached.txt", null, cache);
+        Files.writeString(file, "1 2\n2 3\n");
+        final ByteArrayOutputStream report = new ByteArrayOutputStream();
+        final PrintStream out = new PrintStream(report, true, StandardCharsets.UTF_8);
+        new GraphCalculator("cached.txt", null, cache, out).printVerticiesEdges();
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+        assertTrue(report.toString(StandardCharsets.UTF_8).contains("2 -> 3"));
+      } finally {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    @Test
+    public void TY_04_cache_shares_concurrent_loads() throws Exception {
+      final GraphCache cache = new GraphCache(1 << 20);
+      final Path file = Path.of("testcases", "a.txt");
+      final AtomicInteger loadCount = new AtomicInteger();
+      final CountDownLatch waiting = new CountDownLatch(1);
+      final GraphCache.Loader loader =
+          path -> {
+            loadCount.incrementAndGet();
+            try {
+              waiting.await(); // hold the load open until every client has asked for the file
+            } catch (final InterruptedException e) {
+              throw new InterruptedIOException();
+            }
+            return new Graph<>(Set.of("0"), Set.of());
+          };
+
+      final List<CompletableFuture<Graph<String>>> clients = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        clients.add(
+            CompletableFuture.supplyAsync(
+                () -> {
+                  try {
+                    return cache.get(file, loader);
+                  } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                }));
+      }
+      while (cache.getHitCount() + cache.getMissCount() < clients.size()) {
+        Thread.sleep(1);
+      }
+      waiting.countDown();
+
+      final Graph<String> graph = clients.get(0).get();
+      for (final CompletableFuture<Graph<String>> client : clients) {
+        assertSame(graph, client.get());
+      }
+      assertEquals(1, loadCount.get());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(clients.size() - 1, cache.getHitCount());
+    }
+
+    // graph server
+    private static String query(final int port, final String... commands) throws Exception {
+      try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+          Scanner in = new Scanner(socket.getInputStream(), StandardCharsets.UTF_8);
+          PrintStream out =
+              new PrintStream(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+        final StringBuilder sb = new StringBuilder();
+        for (final String command : commands) {
+          out.println(command);
+          String line;
+          while (!(line = in.nextLine()).equals(GraphServer.RESPONSE_END)) {
+            sb.append(line).append(NEW_LINE);
+          }
+        }
+        return sb.toString();
+      }
+    }
+
+    @Test
+    public void TY_01_server_concurrent_clients() throws Exception {
+      final GraphCache cache = new GraphCache(1 << 20);
+      try (GraphServer server = new GraphServer(0, cache)) {
+        server.start();
+        final CompletableFuture<String> first =
+            CompletableFuture.supplyAsync(() -> queryRoots(server.getPort()));
+        final CompletableFuture<String> second =
+            CompletableFuture.supplyAsync(() -> queryRoots(server.getPort()));
+        final String expected =
+            MessageCli.OPENED_FILE_SUCCESSFULLY.getMessage("a.txt") + NEW_LINE + "[0]" + NEW_LINE
+                + MessageCli.END.getMessage() + NEW_LINE;
+        assertEquals(expected, first.get());
+        assertEquals(expected, second.get());
+
+        // both clients share one load of the graph
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+      }
+    }
+
+    private static String queryRoots(final int port) {
+      try {
+        return query(port, "OPEN_FILE a.txt", "LIST_ROOT_VERTICIES", "EXIT");
+      } catch (final Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Test
+    public void TY_02_server_sessions_are_separate() throws Exception {
+      try (GraphServer server = new GraphServer(0, new GraphCache(1 << 20))) {
+        server.start();
+        final String edited =
+            query(server.getPort(), "LIST_ROOT_VERTICIES", "OPEN_FILE a.txt", "ADD_EDGE 1 0");
+        assertEquals(
+            MessageCli.FILE_NOT_OPEN.getMessage()
+                + NEW_LINE
+                + MessageCli.OPENED_FILE_SUCCESSFULLY.getMessage("a.txt")
+                + NEW_LINE
+                + MessageCli.EDGE_ADDED.getMessage("1", "0")
+                + NEW_LINE,
+            edited);
+
+        // edits of one session do not change the shared graph
+        final String roots = query(server.getPort(), "OPEN_FILE a.txt", "LIST_ROOT_VERTICIES");
+        assertEquals(
+            MessageCli.OPENED_FILE_SUCCESSFULLY.getMessage("a.txt") + NEW_LINE + "[0]" + NEW_LINE,
+            roots);
+      }
+    }
+
+    @Test
+    public void TY_03_server_refuses_file_writes() throws Exception {
+      final Path snapshot = Path.of("testcases", "served.snapshot");
+      final Path closure = Path.of("testcases", "served_closure.snapshot");
+      try (GraphServer server = new GraphServer(0, new GraphCache(1 << 20))) {
+        server.start();
+        final String refused =
+            query(
+                server.getPort(),
+                "OPEN_FILE a.txt",
+                "SAVE_SNAPSHOT served.snapshot",
+                "SAVE_CLOSURE served_closure.snapshot");
+        assertEquals(
+            MessageCli.OPENED_FILE_SUCCESSFULLY.getMessage("a.txt")
+                + NEW_LINE
+                + MessageCli.FILE_WRITES_NOT_ALLOWED.getMessage("SAVE_SNAPSHOT")
+                + NEW_LINE
+                + MessageCli.FILE_WRITES_NOT_ALLOWED.getMessage("SAVE_CLOSURE")
+                + NEW_LINE,
+            refused);
+        assertTrue(Files.notExists(snapshot));
+        assertTrue(Files.notExists(closure));
+      } finally {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(closure);
+      }
+    }
+
+    @Test
+    public void TY_04_server_allows_file_writes() throws Exception {
+      final Path snapshot = Path.of("testcases", "served.snapshot");
+      try (GraphServer server = new GraphServer(0, new GraphCache(1 << 20), true)) {
+        server.start();
+        final String saved =
+            query(server.getPort(), "OPEN_FILE a.txt", "SAVE_SNAPSHOT served.snapshot");
+        assertEquals(
+            MessageCli.OPENED_FILE_SUCCESSFULLY.getMessage("a.txt")
+                + NEW_LINE
+                + MessageCli.SAVED_SNAPSHOT.getMessage("served.snapshot")
+                + NEW_LINE,
+            saved);
+        assertTrue(Files.exists(snapshot));
+      } finally {
+        Files.deleteIfExists(snapshot);
+      }
+    }
   }
 }